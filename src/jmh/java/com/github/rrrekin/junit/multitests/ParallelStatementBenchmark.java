@@ -0,0 +1,149 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runners.model.Statement;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Overhead of parallel test executions: evaluation of {@link MultiTestsRule.ParallelStatement} executing empty test
+ * once per thread (statement creation, start of workers, start gate and waiting for completion), cost of single
+ * invocation when threads execute many of them, and skew of start times of test code released by the start gate.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@org.openjdk.jmh.annotations.Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParallelStatementBenchmark {
+
+    private static final long TIMEOUT = 60000;
+    private static final int INVOCATIONS = 1000;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    /** Start gate on which threads spin instead of parking. */
+    @Param({"false", "true"})
+    public boolean spinStart;
+
+    private final Statement empty = new Statement() {
+        @Override
+        public void evaluate() throws Throwable {
+        }
+    };
+    private WorkerPool pool;
+
+    @Setup
+    public void setUp() {
+        pool = new WorkerPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /** Creation of the statement alone. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Statement create() {
+        return new MultiTestsRule.ParallelStatement(threads, threads, TIMEOUT, empty, pool, ExecutionMode.PLATFORM,
+                null).withSpinStart(spinStart);
+    }
+
+    /** Fixed cost of parallel test: single invocation per thread. */
+    @Benchmark
+    public void evaluate() throws Throwable {
+        new MultiTestsRule.ParallelStatement(threads, threads, TIMEOUT, empty, pool, ExecutionMode.PLATFORM, null)
+                .withSpinStart(spinStart).evaluate();
+    }
+
+    /** Cost of single invocation when threads take many of them. */
+    @Benchmark
+    @OperationsPerInvocation(INVOCATIONS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void invocation() throws Throwable {
+        new MultiTestsRule.ParallelStatement(threads, INVOCATIONS, TIMEOUT, empty, pool, ExecutionMode.PLATFORM, null)
+                .withSpinStart(spinStart).evaluate();
+    }
+
+    /**
+     * Difference between the first and the last start of test code released by the start gate. Reported as total
+     * {@code skewNanos} and number of {@code runs}, mean skew is their ratio.
+     */
+    @Benchmark
+    public void startSkew(final Skew skew) throws Throwable {
+        final StartRecorder recorder = new StartRecorder();
+        new MultiTestsRule.ParallelStatement(threads, threads, TIMEOUT, recorder, pool, ExecutionMode.PLATFORM, null)
+                .withSpinStart(spinStart).evaluate();
+        skew.skewNanos += recorder.last.get() - recorder.first.get();
+        skew.runs++;
+    }
+
+    /** Start skew counters of benchmark thread. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Skew {
+        public long skewNanos;
+        public long runs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            skewNanos = 0;
+            runs = 0;
+        }
+    }
+
+    /** Test recording the earliest and the latest start time. */
+    private static final class StartRecorder extends Statement {
+        private final AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+
+        @Override
+        public void evaluate() throws Throwable {
+            final long start = System.nanoTime();
+            long current = first.get();
+            while (start < current && !first.compareAndSet(current, start)) {
+                current = first.get();
+            }
+            current = last.get();
+            while (start > current && !last.compareAndSet(current, start)) {
+                current = last.get();
+            }
+        }
+    }
+}
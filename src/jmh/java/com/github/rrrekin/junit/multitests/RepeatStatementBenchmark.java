@@ -0,0 +1,89 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runners.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of single repetition of {@link MultiTestsRule.RepeatStatement} executing empty test, with and without
+ * measurement of every repetition, compared with plain loop calling the test. The test is never inlined, so the loop
+ * is not eliminated by JIT and all benchmarks pay the same cost of the call.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@org.openjdk.jmh.annotations.Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RepeatStatementBenchmark {
+
+    private static final int REPETITIONS = 1000;
+
+    private final Statement empty = new EmptyTest();
+    private Measurement measurement;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        measurement = new Measurement(1);
+    }
+
+    /** Plain loop calling the test, the noise floor. */
+    @Benchmark
+    @OperationsPerInvocation(REPETITIONS)
+    public void loop() throws Throwable {
+        for (int i = 0; i < REPETITIONS; i++) {
+            empty.evaluate();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPETITIONS)
+    public void repeat() throws Throwable {
+        new MultiTestsRule.RepeatStatement(REPETITIONS, empty).evaluate();
+    }
+
+    /** Repetitions measured as in reported tests: latency histogram and invocation timestamps. */
+    @Benchmark
+    @OperationsPerInvocation(REPETITIONS)
+    public void repeatMeasured() throws Throwable {
+        new MultiTestsRule.RepeatStatement(REPETITIONS, empty, measurement).evaluate();
+    }
+
+    /** Empty test, a call that JIT cannot remove. */
+    private static final class EmptyTest extends Statement {
+        @Override
+        @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+        public void evaluate() throws Throwable {
+        }
+    }
+}
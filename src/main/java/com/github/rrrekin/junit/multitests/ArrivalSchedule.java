@@ -0,0 +1,102 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intended start times of invocations for given @{@link LoadProfile}. The schedule is a sequence of constant rate
+ * segments: ramp-up steps followed by the plateau, invocations of every segment are evenly spaced.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class ArrivalSchedule {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** Nanoseconds between invocations of each segment. */
+    private final double[] intervals;
+    /** Offset of segment start from the schedule start. */
+    private final long[] starts;
+    /** Index of the first invocation of each segment, the last element is total invocation count. */
+    private final long[] firstInvocations;
+
+    /**
+     * Creates schedule.
+     *
+     * @param opsPerSecond target rate
+     * @param rampSteps    number of ramp-up steps, the rate of step {@code i} is {@code i/rampSteps} of the target
+     * @param stepNanos    duration of ramp-up step
+     * @param plateauNanos duration of the plateau, {@code 0} for unlimited
+     */
+    ArrivalSchedule(final double opsPerSecond, final int rampSteps, final long stepNanos, final long plateauNanos) {
+        if (opsPerSecond <= 0) {
+            throw new IllegalArgumentException("Load profile rate has to be positive: " + opsPerSecond);
+        }
+        final int segments = Math.max(1, rampSteps);
+        intervals = new double[segments];
+        starts = new long[segments];
+        firstInvocations = new long[segments + 1];
+        for (int i = 0; i < segments; i++) {
+            final int step = i + 1;
+            intervals[i] = NANOS_PER_SECOND * segments / (opsPerSecond * step);
+            final boolean plateau = step == segments;
+            final long duration = plateau ? plateauNanos : stepNanos;
+            if (i > 0) {
+                starts[i] = starts[i - 1] + stepNanos;
+            }
+            firstInvocations[step] = plateau && duration <= 0 ? Long.MAX_VALUE
+                    : firstInvocations[i] + (long) Math.ceil(duration / intervals[i]);
+        }
+    }
+
+    /**
+     * Creates schedule for given annotation.
+     *
+     * @param profile load profile
+     * @return new schedule
+     */
+    static ArrivalSchedule of(final LoadProfile profile) {
+        return new ArrivalSchedule(profile.opsPerSecond(), profile.rampSteps(),
+                TimeUnit.MILLISECONDS.toNanos(profile.stepMillis()),
+                TimeUnit.MILLISECONDS.toNanos(profile.plateauMillis()));
+    }
+
+    /**
+     * Returns total number of invocations.
+     *
+     * @return invocation count, {@link Long#MAX_VALUE} for unlimited plateau
+     */
+    long getInvocations() {
+        return firstInvocations[intervals.length];
+    }
+
+    /**
+     * Returns intended start time of invocation.
+     *
+     * @param invocation invocation index
+     * @return nanoseconds from the schedule start, {@code -1} when the invocation is beyond the schedule
+     */
+    long offsetOf(final long invocation) {
+        for (int i = 0; i < intervals.length; i++) {
+            if (invocation < firstInvocations[i + 1]) {
+                return starts[i] + (long) ((invocation - firstInvocations[i]) * intervals[i]);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Local store of latency distributions and throughput of measured tests, kept in a properties file under the build
+ * directory and keyed by test {@link Description}. When a test has a baseline, its latencies are compared with it
+ * using one-sided Mann-Whitney U test ({@link RankSum}) and the test fails only when the slowdown is both
+ * statistically significant and not negligible, so noise of shared CI machines does not cause false alarms. Only
+ * latency is gated: throughput is a single value per run, without distribution to test significance of its change, so
+ * it is stored and shown in the failure message for reference only.
+ *
+ * <p>Baseline of a test is stored when there is none. To replace existing baselines with results of current run (e.g.
+ * after an intended performance change) set system property {@value #UPDATE_PROPERTY} to {@code true}, or delete the
+ * file.</p>
+ *
+ * <p>Store file may be shared by several stores, also in different JVMs (e.g. forked test workers): stored baselines
+ * are merged into current content of the file under lock of companion file with {@value #LOCK_SUFFIX} suffix, and the
+ * file is replaced atomically. The lock file is kept, deleting it could let another store lock a new file while the
+ * old one is still locked.</p>
+ *
+ * <pre>
+ *     &#64;Rule public MultiTestsRule multiTests = new MultiTestsRule().withBaseline(BaselineStore.atDefaultLocation());
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class BaselineStore {
+
+    /** Default store file, in Gradle build directory. */
+    public static final String DEFAULT_FILE = "build/multitests-baseline.properties";
+    /** System property that makes stores replace existing baselines with current results. */
+    public static final String UPDATE_PROPERTY = "multitests.baseline.update";
+    public static final double DEFAULT_SIGNIFICANCE = 0.01;
+    /** Small effect size according to Vargha and Delaney. */
+    public static final double DEFAULT_MIN_EFFECT = 0.56;
+    /** Suffix of the lock file created next to the store file. */
+    public static final String LOCK_SUFFIX = ".lock";
+
+    private static final String LATENCY_SUFFIX = ".latency";
+    private static final String THROUGHPUT_SUFFIX = ".throughput";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String BUCKET_SEPARATOR = ",";
+    private static final double MEDIAN = 50;
+    private static final double NANOS_PER_MICRO = 1e3;
+    /** File locks are held by JVM, stores of the same JVM are serialized before locking. */
+    private static final Object JVM_LOCK = new Object();
+
+    private final File file;
+    private final Properties baselines = new Properties();
+    private double significance = DEFAULT_SIGNIFICANCE;
+    private double minEffect = DEFAULT_MIN_EFFECT;
+
+    /**
+     * Creates store kept in given file, existing baselines are loaded.
+     *
+     * @param file store file
+     * @throws IllegalStateException when existing file cannot be read
+     */
+    public BaselineStore(final File file) {
+        this.file = file;
+        try {
+            baselines.putAll(load(file));
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Cannot read baseline store " + file, ex);
+        }
+    }
+
+    /**
+     * Creates store kept in {@value #DEFAULT_FILE}.
+     *
+     * @return new store
+     */
+    public static BaselineStore atDefaultLocation() {
+        return new BaselineStore(new File(DEFAULT_FILE));
+    }
+
+    /**
+     * Sets significance level of the test: slowdown is reported only when its p-value is lower.
+     *
+     * @param alpha significance level, {@value #DEFAULT_SIGNIFICANCE} by default
+     * @return this store
+     */
+    public BaselineStore withSignificance(final double alpha) {
+        this.significance = alpha;
+        return this;
+    }
+
+    /**
+     * Sets minimal reported effect size: probability that latency of current run is greater than baseline latency.
+     *
+     * @param effect effect size from 0.5 (any slowdown) to 1, {@value #DEFAULT_MIN_EFFECT} by default
+     * @return this store
+     */
+    public BaselineStore withMinEffect(final double effect) {
+        this.minEffect = effect;
+        return this;
+    }
+
+    /**
+     * Checks if there is a baseline of the test.
+     *
+     * @param description test description
+     * @return {@code true} when baseline exists
+     */
+    public synchronized boolean hasBaseline(final Description description) {
+        return baselines.containsKey(description.getDisplayName() + LATENCY_SUFFIX);
+    }
+
+    /**
+     * Compares test results with its baseline and stores them when there is no baseline (or update is requested).
+     *
+     * @param description test description
+     * @param latencies   measured latencies
+     * @param throughput  measured throughput in operations per second
+     * @throws AssertionError when latencies are significantly greater than baseline ones
+     */
+    synchronized void check(final Description description, final LatencyHistogram latencies, final double throughput) {
+        final String key = description.getDisplayName();
+        final String stored = baselines.getProperty(key + LATENCY_SUFFIX);
+        if (stored == null || Boolean.getBoolean(UPDATE_PROPERTY)) {
+            store(key, latencies, throughput);
+            return;
+        }
+        final LatencyHistogram baseline = parse(stored);
+        final RankSum comparison = new RankSum(baseline, latencies);
+        if (comparison.getPValue() < significance && comparison.getSuperiority() >= minEffect) {
+            throw new AssertionError(String.format(Locale.ROOT,
+                    "Latency regression against baseline: p50 %.3fus -> %.3fus, throughput %s -> %.1f ops/s, "
+                            + "effect size %.3f, p-value %.3g", baseline.getValueAtPercentile(MEDIAN) / NANOS_PER_MICRO,
+                    latencies.getValueAtPercentile(MEDIAN) / NANOS_PER_MICRO,
+                    baselines.getProperty(key + THROUGHPUT_SUFFIX), throughput, comparison.getSuperiority(),
+                    comparison.getPValue()));
+        }
+    }
+
+    private void store(final String key, final LatencyHistogram latencies, final double throughput) {
+        final StringBuilder buckets = new StringBuilder();
+        for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+            final long count = latencies.getCountAt(i);
+            if (count != 0) {
+                buckets.append(buckets.length() == 0 ? "" : BUCKET_SEPARATOR).append(i).append(':').append(count);
+            }
+        }
+        final Properties update = new Properties();
+        update.setProperty(key + LATENCY_SUFFIX, buckets.toString());
+        update.setProperty(key + THROUGHPUT_SUFFIX, String.format(Locale.ROOT, "%.1f", throughput));
+        baselines.putAll(update);
+        try {
+            final File directory = file.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            synchronized (JVM_LOCK) {
+                merge(update);
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Cannot write baseline store " + file, ex);
+        }
+    }
+
+    /**
+     * Adds given baselines to current content of the store file, under lock of a companion lock file, so baselines
+     * written by other stores since this one was loaded are not lost.
+     */
+    private void merge(final Properties update) throws IOException {
+        final RandomAccessFile lockFile = new RandomAccessFile(file.getPath() + LOCK_SUFFIX, "rw");
+        try {
+            final FileLock lock = lockFile.getChannel().lock();
+            try {
+                final Properties merged = load(file);
+                merged.putAll(update);
+                replace(merged);
+                baselines.putAll(merged);
+            } finally {
+                lock.release();
+            }
+        } finally {
+            lockFile.close();
+        }
+    }
+
+    /** Writes baselines to temporary file in store directory and renames it to store file. */
+    private void replace(final Properties content) throws IOException {
+        final File temp = File.createTempFile(file.getName(), TEMP_SUFFIX, file.getAbsoluteFile().getParentFile());
+        final OutputStream output = new FileOutputStream(temp);
+        try {
+            content.store(output, "multitests baselines");
+        } finally {
+            output.close();
+        }
+        // rename does not replace existing file on Windows
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            if (!temp.delete()) {
+                temp.deleteOnExit();
+            }
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    private static Properties load(final File file) throws IOException {
+        final Properties result = new Properties();
+        if (file.exists()) {
+            final InputStream input = new FileInputStream(file);
+            try {
+                result.load(input);
+            } finally {
+                input.close();
+            }
+        }
+        return result;
+    }
+
+    private static LatencyHistogram parse(final String buckets) {
+        final LatencyHistogram result = new LatencyHistogram();
+        if (buckets.isEmpty()) {
+            return result;
+        }
+        for (final String bucket : buckets.split(BUCKET_SEPARATOR)) {
+            final int separator = bucket.indexOf(':');
+            result.add(Integer.parseInt(bucket.substring(0, separator)), Long.parseLong(bucket.substring(separator + 1)));
+        }
+        return result;
+    }
+}
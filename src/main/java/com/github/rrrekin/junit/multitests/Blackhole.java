@@ -0,0 +1,103 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+/**
+ * Sink for results of benchmarked code, which prevents the JIT compiler from eliminating computations whose results
+ * are not used. Every consumed value is compared with a volatile field, which the compiler cannot predict, so the value
+ * has to be computed, while the comparison costs only a few CPU cycles and does not write to shared memory.
+ *
+ * <pre>
+ *     &#64;Test
+ *     &#64;Repeat(value = 100000, warmup = 100000)
+ *     public void test1() throws Exception {
+ *         Blackhole.consume(Math.log(x));
+ *     }
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class Blackhole {
+
+    private static final String VALUES_CHANGED = "Blackhole values changed";
+
+    /** Values never equal to each other, so no value can be equal to both. */
+    private static volatile long long1 = 1;
+    private static volatile long long2 = 2;
+    private static volatile int int1 = 1;
+    private static volatile int int2 = 2;
+    private static volatile double double1 = 1;
+    private static volatile double double2 = 2;
+    /** Object never passed to consume. */
+    private static volatile Object bait = new Object();
+
+    private Blackhole() {
+    }
+
+    /**
+     * Consumes object.
+     *
+     * @param value consumed value
+     */
+    public static void consume(final Object value) {
+        if (value == bait) {
+            throw new IllegalStateException("Blackhole bait consumed");
+        }
+    }
+
+    /**
+     * Consumes long value.
+     *
+     * @param value consumed value
+     */
+    public static void consume(final long value) {
+        if (value == long1 & value == long2) {
+            throw new IllegalStateException(VALUES_CHANGED);
+        }
+    }
+
+    /**
+     * Consumes int value, also used for short, char and byte values.
+     *
+     * @param value consumed value
+     */
+    public static void consume(final int value) {
+        if (value == int1 & value == int2) {
+            throw new IllegalStateException(VALUES_CHANGED);
+        }
+    }
+
+    /**
+     * Consumes double value, also used for float values.
+     *
+     * @param value consumed value
+     */
+    public static void consume(final double value) {
+        if (value == double1 & value == double2) {
+            throw new IllegalStateException(VALUES_CHANGED);
+        }
+    }
+
+    /**
+     * Consumes boolean value.
+     *
+     * @param value consumed value
+     */
+    public static void consume(final boolean value) {
+        consume(value ? 1 : 0);
+    }
+}
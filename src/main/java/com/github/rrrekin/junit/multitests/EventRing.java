@@ -0,0 +1,223 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.Description;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer single-consumer ring buffer passing invocation events from test threads to
+ * {@link InvocationListener}s. Slots are allocated up front and reused, publishing an event claims a slot with single
+ * compare-and-set and never blocks nor allocates: when all slots are taken the event is dropped and counted. Events
+ * are delivered in order of claimed slots by a daemon dispatcher thread, which parks while the buffer is empty.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class EventRing implements Runnable {
+
+    static final int DEFAULT_CAPACITY = 65536;
+
+    static final int STARTED = 0;
+    static final int FINISHED = 1;
+    static final int FAILED = 2;
+    static final int RETRIED = 3;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static EventRing sharedRing;
+
+    private final Slot[] slots;
+    private final int mask;
+    /** Sequence of the next claimed slot. */
+    private final AtomicLong head = new AtomicLong();
+    /** Sequence of the next delivered slot. */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong listenerFailures = new AtomicLong();
+
+    /**
+     * Creates ring without dispatcher thread.
+     *
+     * @param capacity number of slots, power of two
+     */
+    EventRing(final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity has to be power of two: " + capacity);
+        }
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns JVM-wide ring, its dispatcher thread is started on first use.
+     *
+     * @return shared ring
+     */
+    static synchronized EventRing shared() {
+        if (sharedRing == null) {
+            sharedRing = new EventRing(DEFAULT_CAPACITY).start();
+        }
+        return sharedRing;
+    }
+
+    /**
+     * Starts dispatcher thread.
+     *
+     * @return this ring
+     */
+    EventRing start() {
+        final Thread dispatcher = new Thread(this, "multitests-events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        return this;
+    }
+
+    /**
+     * Publishes event of current thread.
+     *
+     * @param listeners listeners the event is delivered to
+     * @param type      event type
+     * @param test      test description
+     * @param value     latency of finished and failed invocation, attempt number of retry
+     * @param failure   failure of failed invocation and retried attempt
+     */
+    void publish(final InvocationListener[] listeners, final int type, final Description test, final long value,
+                 final Throwable failure) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        final Slot slot = slots[(int) (sequence & mask)];
+        slot.listeners = listeners;
+        slot.type = type;
+        slot.test = test;
+        slot.threadId = Thread.currentThread().getId();
+        slot.nanoTime = System.nanoTime();
+        slot.value = value;
+        slot.failure = failure;
+        slot.published = sequence;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (!deliverNext()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Delivers the next event when it is published.
+     *
+     * @return {@code false} when there is no event to deliver
+     */
+    boolean deliverNext() {
+        final long sequence = tail.get();
+        final Slot slot = slots[(int) (sequence & mask)];
+        if (slot.published != sequence) {
+            return false;
+        }
+        for (final InvocationListener listener : slot.listeners) {
+            try {
+                slot.deliver(listener);
+            } catch (final RuntimeException ex) {
+                // failing listener must not stop delivery to other listeners
+                listenerFailures.incrementAndGet();
+            }
+        }
+        slot.listeners = null;
+        slot.test = null;
+        slot.failure = null;
+        tail.lazySet(sequence + 1);
+        return true;
+    }
+
+    /**
+     * Waits until all events published so far are delivered.
+     *
+     * @param timeoutMillis maximum waiting time in milliseconds
+     * @return {@code false} when not all events were delivered in given time
+     */
+    boolean awaitDelivered(final long timeoutMillis) {
+        final long published = head.get();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (tail.get() < published) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Returns number of events dropped because the ring was full.
+     *
+     * @return dropped event count
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns number of exceptions thrown by listeners.
+     *
+     * @return listener failure count
+     */
+    long getListenerFailures() {
+        return listenerFailures.get();
+    }
+
+    /** Preallocated event, fields are published by write of the volatile sequence. */
+    private static final class Slot {
+        private volatile long published = -1;
+        private InvocationListener[] listeners;
+        private int type;
+        private Description test;
+        private long threadId;
+        private long nanoTime;
+        private long value;
+        private Throwable failure;
+
+        void deliver(final InvocationListener listener) {
+            switch (type) {
+                case STARTED:
+                    listener.invocationStarted(test, threadId, nanoTime);
+                    break;
+                case FINISHED:
+                    listener.invocationFinished(test, threadId, nanoTime, value);
+                    break;
+                case FAILED:
+                    listener.invocationFailed(test, threadId, nanoTime, value, failure);
+                    break;
+                default:
+                    listener.attemptRetried(test, threadId, nanoTime, (int) value, failure);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+/**
+ * Kind of threads used to execute @{@link Parallel} tests.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public enum ExecutionMode {
+    /** Use mode configured in the {@link MultiTestsRule}, {@link #PLATFORM} if not configured. */
+    DEFAULT,
+    /** Platform threads of the {@link WorkerPool}. */
+    PLATFORM,
+    /**
+     * New virtual thread for every parallel execution. Falls back to {@link #PLATFORM} on JVMs without virtual
+     * threads support.
+     */
+    VIRTUAL
+}
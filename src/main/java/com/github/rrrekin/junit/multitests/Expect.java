@@ -0,0 +1,31 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+/**
+ * Classification of outcomes observed by a {@link StressRun}.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public enum Expect {
+    /** Outcome allowed by the tested code contract. */
+    ACCEPTABLE,
+    /** Allowed outcome that is rare or surprising, e.g. result of a benign race, worth reporting. */
+    INTERESTING,
+    /** Outcome breaking the tested code contract, fails the stress test. Outcomes not declared are forbidden. */
+    FORBIDDEN
+}
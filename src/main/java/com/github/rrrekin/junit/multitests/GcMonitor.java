@@ -0,0 +1,248 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Garbage collections that happened during single test execution. Collections are received as notifications of
+ * {@link GarbageCollectorMXBean}s, which provide pause durations, heap usage before collection and memory promoted to
+ * old generation by minor collections. On JVMs not sending notifications only number and total time of collections are
+ * known. Invocations during which any collection happened are counted and their latencies are recorded separately, so
+ * latency spikes caused by collections can be told apart from slow tested code.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class GcMonitor implements NotificationListener {
+
+    /** Type of notifications sent by HotSpot compatible JVMs, see GarbageCollectionNotificationInfo. */
+    static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final double REPORTED_PERCENTILE = 99;
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    private final GarbageCollectorMXBean[] collectors;
+    private final Set<String> heapPools = new HashSet<String>();
+    private final AtomicLong collections = new AtomicLong();
+    private final AtomicLong pauseMillis = new AtomicLong();
+    private final AtomicLong maxPauseMillis = new AtomicLong();
+    private final AtomicLong promotedBytes = new AtomicLong();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final LatencyHistogram overlappingLatencies = new LatencyHistogram();
+    private long initialCollections;
+    private long initialCollectionMillis;
+
+    /** Creates monitor of all garbage collectors of the JVM. */
+    GcMonitor() {
+        final List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[beans.size()]);
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+    }
+
+    /** Starts receiving collection notifications. */
+    void start() {
+        initialCollections = collectionCount();
+        initialCollectionMillis = collectionMillis();
+        for (final GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+    /** Stops receiving collection notifications. */
+    void stop() {
+        for (final GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                } catch (final ListenerNotFoundException ex) {
+                    // not registered, nothing to remove
+                    continue;
+                }
+            }
+        }
+        if (collections.get() == 0) {
+            // no notifications sent by the JVM, use totals of collectors
+            collections.set(collectionCount() - initialCollections);
+            pauseMillis.set(collectionMillis() - initialCollectionMillis);
+        }
+        updateMax(peakHeapBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * Returns number of collections of all collectors since JVM start. Does not allocate, so it can be read around
+     * every invocation.
+     *
+     * @return collection count
+     */
+    long collectionCount() {
+        long count = 0;
+        for (final GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Records latency of invocation, when any collection happened since it started.
+     *
+     * @param initialCount collection count read before the invocation
+     * @param latencyNanos invocation latency
+     */
+    void invoked(final long initialCount, final long latencyNanos) {
+        if (collectionCount() != initialCount) {
+            overlappingLatencies.record(latencyNanos);
+        }
+    }
+
+    @Override
+    public void handleNotification(final Notification notification, final Object handback) {
+        if (!GC_NOTIFICATION.equals(notification.getType())
+                || !(notification.getUserData() instanceof CompositeData)) {
+            return;
+        }
+        final CompositeData data = (CompositeData) notification.getUserData();
+        final String name = String.valueOf(data.get("gcName"));
+        final CompositeData info = (CompositeData) data.get("gcInfo");
+        collections.incrementAndGet();
+        // concurrent collection cycles do not stop application threads
+        if (!name.contains("Cycles") && !name.contains("Concurrent")) {
+            final long duration = (Long) info.get("duration");
+            pauseMillis.addAndGet(duration);
+            updateMax(maxPauseMillis, duration);
+        }
+        final TabularData before = (TabularData) info.get("memoryUsageBeforeGc");
+        final TabularData after = (TabularData) info.get("memoryUsageAfterGc");
+        updateMax(peakHeapBytes, usedBytes(before, false));
+        if (String.valueOf(data.get("gcAction")).contains("minor")) {
+            promotedBytes.addAndGet(Math.max(0, usedBytes(after, true) - usedBytes(before, true)));
+        }
+    }
+
+    /**
+     * Returns number of collections during the test.
+     *
+     * @return collection count
+     */
+    long getCollections() {
+        return collections.get();
+    }
+
+    /**
+     * Returns total time of collection pauses during the test.
+     *
+     * @return pause time in milliseconds
+     */
+    long getPauseMillis() {
+        return pauseMillis.get();
+    }
+
+    /**
+     * Returns the longest collection pause during the test.
+     *
+     * @return pause time in milliseconds, 0 when not known
+     */
+    long getMaxPauseMillis() {
+        return maxPauseMillis.get();
+    }
+
+    /**
+     * Returns memory promoted to old generation by minor collections during the test.
+     *
+     * @return promoted bytes, 0 when not known
+     */
+    long getPromotedBytes() {
+        return promotedBytes.get();
+    }
+
+    /**
+     * Returns the highest heap usage observed before collections and at the end of the test.
+     *
+     * @return used heap in bytes
+     */
+    long getPeakHeapBytes() {
+        return peakHeapBytes.get();
+    }
+
+    /**
+     * Returns latencies of invocations during which collection happened.
+     *
+     * @return histogram of overlapping invocation latencies
+     */
+    LatencyHistogram getOverlappingLatencies() {
+        return overlappingLatencies;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "gc %d collections, paused %dms (max %dms), promoted %d B, peak heap %.1f MB, "
+                        + "%d invocations overlapped collection (p99=%.3fus)",
+                getCollections(), getPauseMillis(), getMaxPauseMillis(), getPromotedBytes(),
+                getPeakHeapBytes() / BYTES_PER_MEGABYTE, overlappingLatencies.getCount(),
+                overlappingLatencies.getValueAtPercentile(REPORTED_PERCENTILE) / NANOS_PER_MICRO);
+    }
+
+    private long collectionMillis() {
+        long millis = 0;
+        for (final GarbageCollectorMXBean collector : collectors) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /** Sums used memory of all heap pools or of old generation pools only. */
+    private long usedBytes(final TabularData pools, final boolean oldGeneration) {
+        long used = 0;
+        for (final Object row : pools.values()) {
+            final CompositeData pool = (CompositeData) row;
+            final String name = String.valueOf(pool.get("key"));
+            if (oldGeneration ? name.contains("Old") || name.contains("Tenured") : heapPools.contains(name)) {
+                used += MemoryUsage.from((CompositeData) pool.get("value")).getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Marks @{@link Retry} test as safe for concurrent attempts and makes its attempts overlap: next attempt is started
+ * when previous one fails or when it does not finish in given delay, up to given number of attempts running at once.
+ * The first successful attempt wins, attempts still running are interrupted. Attempts are executed on worker pool
+ * threads and share the test instance (including {@code @Before} and {@code @After} methods), so only tests that can
+ * run concurrently with themselves may be annotated. Used by the MultiTestsRule.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface Hedged {
+
+    int DEFAULT_CONCURRENT_ATTEMPTS = 2;
+
+    /** Maximum number of attempts running at once. */
+    int value() default DEFAULT_CONCURRENT_ATTEMPTS;
+
+    /**
+     * Time in milliseconds after which next attempt is started when running attempts have not finished yet, by
+     * default all concurrent attempts are started at once.
+     */
+    long delayMillis() default 0;
+}
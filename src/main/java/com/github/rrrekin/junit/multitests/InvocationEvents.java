@@ -0,0 +1,91 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.Description;
+
+/**
+ * Publisher of invocation events of single test to its listeners, used by repeat, parallel and retry statements.
+ * Listeners receive events through the ring buffer, JMX counters are updated directly, so they stay exact also when the
+ * ring drops events.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class InvocationEvents {
+
+    private final EventRing ring;
+    private final InvocationListener[] listeners;
+    private final InvocationMetrics metrics;
+    private final Description test;
+
+    /**
+     * Creates publisher.
+     *
+     * @param ring      ring buffer events are published to
+     * @param listeners listeners of the test, can be empty
+     * @param metrics   JMX counters, {@code null} when disabled
+     * @param test      test description
+     */
+    InvocationEvents(final EventRing ring, final InvocationListener[] listeners, final InvocationMetrics metrics,
+                     final Description test) {
+        this.ring = ring;
+        this.listeners = listeners;
+        this.metrics = metrics;
+        this.test = test;
+    }
+
+    /** Publishes start of invocation executed by current thread. */
+    void started() {
+        if (metrics != null) {
+            metrics.started();
+        }
+        if (listeners.length > 0) {
+            ring.publish(listeners, EventRing.STARTED, test, 0, null);
+        }
+    }
+
+    /**
+     * Publishes end of invocation executed by current thread.
+     *
+     * @param latencyNanos invocation latency in nanoseconds
+     * @param failure      invocation failure, {@code null} on success
+     */
+    void finished(final long latencyNanos, final Throwable failure) {
+        if (metrics != null) {
+            metrics.finished(failure != null);
+        }
+        if (listeners.length > 0) {
+            ring.publish(listeners, failure == null ? EventRing.FINISHED : EventRing.FAILED, test, latencyNanos,
+                    failure);
+        }
+    }
+
+    /**
+     * Publishes retry of failed attempt.
+     *
+     * @param attempt number of the next attempt
+     * @param failure failure of the previous attempt
+     */
+    void retried(final int attempt, final Throwable failure) {
+        if (metrics != null) {
+            metrics.retried();
+        }
+        if (listeners.length > 0) {
+            ring.publish(listeners, EventRing.RETRIED, test, attempt, failure);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.Description;
+
+/**
+ * Receiver of invocation events of repeated, parallel and retried tests, registered with
+ * {@link MultiTestsRule#withListener(InvocationListener)}. Events are passed from test threads through a preallocated
+ * ring buffer and delivered asynchronously by single dispatcher thread, so a slow listener never blocks tested code.
+ * When the buffer is full new events are dropped and counted instead. Times are as returned by
+ * {@link System#nanoTime()} in the test thread.
+ *
+ * <p>Invocations are executions of repeated or parallel test. Attempts of test that is only retried (and possibly
+ * hedged) are its invocations, attempts of retried repetitions are not, only their retries are published.</p>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public interface InvocationListener {
+
+    /**
+     * Called after test invocation started.
+     *
+     * @param test     test description
+     * @param threadId id of thread executing the invocation
+     * @param nanoTime invocation start time
+     */
+    void invocationStarted(Description test, long threadId, long nanoTime);
+
+    /**
+     * Called after test invocation succeeded.
+     *
+     * @param test         test description
+     * @param threadId     id of thread executing the invocation
+     * @param nanoTime     invocation end time
+     * @param latencyNanos invocation latency in nanoseconds
+     */
+    void invocationFinished(Description test, long threadId, long nanoTime, long latencyNanos);
+
+    /**
+     * Called after test invocation failed.
+     *
+     * @param test         test description
+     * @param threadId     id of thread executing the invocation
+     * @param nanoTime     invocation end time
+     * @param latencyNanos invocation latency in nanoseconds
+     * @param failure      invocation failure
+     */
+    void invocationFailed(Description test, long threadId, long nanoTime, long latencyNanos, Throwable failure);
+
+    /**
+     * Called when failed attempt of @{@link Retry} test is retried.
+     *
+     * @param test     test description
+     * @param threadId id of thread executing the test
+     * @param nanoTime retry time
+     * @param attempt  number of the next attempt, 2 for the first retry
+     * @param failure  failure of the previous attempt
+     */
+    void attemptRetried(Description test, long threadId, long nanoTime, int attempt, Throwable failure);
+}
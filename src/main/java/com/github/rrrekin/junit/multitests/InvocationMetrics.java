@@ -0,0 +1,140 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of test invocations exposed as JMX MBean {@value #OBJECT_NAME}, so long soak tests can be watched
+ * with JConsole or any JMX exporter while they run. Counters are updated directly by test threads, not through the
+ * event ring of {@link InvocationListener}s, so they are exact also when listeners do not keep up and events are
+ * dropped. The rate is computed when read.
+ *
+ * <pre>
+ *     &#64;Rule public MultiTestsRule multiTests = new MultiTestsRule().withJmxMetrics(true);
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class InvocationMetrics implements InvocationMetricsMBean {
+
+    public static final String OBJECT_NAME = "com.github.rrrekin.multitests:type=InvocationMetrics";
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static InvocationMetrics registeredMetrics;
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    /** Start of current rate window and number of invocations finished before it. Guarded by this. */
+    private long windowStart = System.nanoTime();
+    private long windowFinished;
+    private double rate;
+
+    /**
+     * Returns metrics registered in platform MBean server, registering them on first use.
+     *
+     * @return JVM-wide metrics
+     * @throws IllegalStateException when the MBean cannot be registered
+     */
+    public static synchronized InvocationMetrics registered() {
+        if (registeredMetrics == null) {
+            final InvocationMetrics metrics = new InvocationMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (final JMException ex) {
+                throw new IllegalStateException("Cannot register MBean " + OBJECT_NAME, ex);
+            }
+            registeredMetrics = metrics;
+        }
+        return registeredMetrics;
+    }
+
+    /** Counts started invocation. */
+    void started() {
+        started.incrementAndGet();
+    }
+
+    /**
+     * Counts finished invocation.
+     *
+     * @param failure {@code true} when the invocation failed
+     */
+    void finished(final boolean failure) {
+        (failure ? failed : completed).incrementAndGet();
+    }
+
+    /** Counts retried attempt. */
+    void retried() {
+        retries.incrementAndGet();
+    }
+
+    @Override
+    public long getInFlight() {
+        // finished counters are read first, so invocations finishing meanwhile are still in flight
+        final long finished = completed.get() + failed.get();
+        return started.get() - finished;
+    }
+
+    @Override
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public double getRate() {
+        return rateAt(System.nanoTime());
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return EventRing.shared().getDropped();
+    }
+
+    /**
+     * Returns rate of invocations finished in the last rate window, closing the window when it is full.
+     *
+     * @param nanoTime current time
+     * @return rate in invocations per second
+     */
+    synchronized double rateAt(final long nanoTime) {
+        final long elapsed = nanoTime - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            final long finished = completed.get() + failed.get();
+            rate = (finished - windowFinished) * NANOS_PER_SECOND / elapsed;
+            windowStart = nanoTime;
+            windowFinished = finished;
+        }
+        return rate;
+    }
+}
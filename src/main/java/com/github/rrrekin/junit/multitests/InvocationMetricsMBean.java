@@ -0,0 +1,68 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+/**
+ * JMX view of {@link InvocationMetrics}.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public interface InvocationMetricsMBean {
+
+    /**
+     * Returns number of invocations started and not finished yet.
+     *
+     * @return in-flight invocation count
+     */
+    long getInFlight();
+
+    /**
+     * Returns number of successful invocations.
+     *
+     * @return completed invocation count
+     */
+    long getCompleted();
+
+    /**
+     * Returns number of failed invocations.
+     *
+     * @return failed invocation count
+     */
+    long getFailed();
+
+    /**
+     * Returns number of retried attempts of @{@link Retry} tests.
+     *
+     * @return retry count
+     */
+    long getRetries();
+
+    /**
+     * Returns number of invocations finished per second, measured since previous read of the rate, at least over a
+     * second.
+     *
+     * @return current rate in invocations per second, 0 when nothing finished recently
+     */
+    double getRate();
+
+    /**
+     * Returns number of events dropped because listeners did not keep up with the tests, counters are not affected.
+     *
+     * @return dropped event count
+     */
+    long getDroppedEvents();
+}
@@ -0,0 +1,96 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Work-stealing distribution of invocations among parallel test workers. Every worker owns an equal, contiguous range
+ * of invocation indexes and takes batches from its front. Worker that has finished its own range steals batches from
+ * ranges of other workers, but never their last batch - so when there is one invocation per worker, every worker
+ * executes exactly one of them. Only two arrays sized by the number of workers are allocated, regardless of the number
+ * of invocations.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class InvocationScheduler {
+
+    /** Maximum number of invocations taken at once. */
+    static final int MAX_BATCH = 1024;
+    /** Desired number of batches in the range of single worker, so work can be balanced. */
+    private static final int BATCHES_PER_WORKER = 16;
+
+    private final int workers;
+    private final long batch;
+    private final AtomicLongArray cursors;
+    private final long[] ends;
+
+    /**
+     * Creates scheduler.
+     *
+     * @param invocations total number of invocations, {@link Long#MAX_VALUE} for unlimited
+     * @param workers     number of workers
+     */
+    InvocationScheduler(final long invocations, final int workers) {
+        this.workers = workers;
+        this.batch = Math.max(1, Math.min(MAX_BATCH, invocations / ((long) workers * BATCHES_PER_WORKER)));
+        this.cursors = new AtomicLongArray(workers);
+        this.ends = new long[workers];
+        final long share = invocations / workers;
+        final long remainder = invocations % workers;
+        for (int i = 0; i < workers; i++) {
+            cursors.set(i, i * share + Math.min(i, remainder));
+            ends[i] = cursors.get(i) + share + (i < remainder ? 1 : 0);
+        }
+    }
+
+    /**
+     * Takes next batch of invocations for given worker, from its own range or stolen from other worker.
+     *
+     * @param worker worker index
+     * @param range  two element array filled with first (inclusive) and last (exclusive) index of the batch
+     * @return {@code false} when there are no more invocations for this worker
+     */
+    boolean next(final int worker, final long[] range) {
+        final long first = cursors.getAndAdd(worker, batch);
+        if (first < ends[worker]) {
+            range[0] = first;
+            range[1] = Math.min(first + batch, ends[worker]);
+            return true;
+        }
+        for (int i = 1; i < workers; i++) {
+            if (steal((worker + i) % workers, range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean steal(final int victim, final long[] range) {
+        while (true) {
+            final long first = cursors.get(victim);
+            if (ends[victim] - first < 2 * batch) {
+                return false;
+            }
+            if (cursors.compareAndSet(victim, first, first + batch)) {
+                range[0] = first;
+                range[1] = first + batch;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Indicates that the test method of a class executed by {@link MultiTestsRunner} with class-level @{@link Parallel}
+ * must not run concurrently with other test methods of the class, e.g. because it changes shared fixture or global
+ * state. Used by the MultiTestsRunner.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface Isolated {
+}
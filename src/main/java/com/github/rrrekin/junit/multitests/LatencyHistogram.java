@@ -0,0 +1,282 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with logarithmic buckets, each power of two range is split into 64 linear
+ * sub-buckets, so recorded values are kept with precision better than 1.6%. All buckets are allocated up front and
+ * recording does not allocate nor block, so it can be safely used from several threads in the measured code path.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class LatencyHistogram {
+
+    /** Number of bits of linear sub-bucket index. */
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    /** Values up to {@link Long#MAX_VALUE} have highest bit at most at position 62. */
+    private static final int MAX_EXPONENT = Long.SIZE - 1 - SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT + 1) * HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+    private static final double PERCENT = 100.0;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+    /** Two-sided 99.9% quantiles of Student's t-distribution for 1 to 10 degrees of freedom. */
+    private static final double[] T_QUANTILES = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+        4.587};
+    /** Two-sided 99.9% quantile of standard normal distribution. */
+    private static final double Z_QUANTILE = 3.290527;
+    // Cornish-Fisher expansion of t quantile in powers of 1/degrees of freedom (Abramowitz & Stegun 26.7.5)
+    private static final double[][] T_EXPANSION = {
+        {1, 1},
+        {3, 16, 5},
+        {-15, 17, 19, 3},
+        {-945, -1920, 1482, 776, 79},
+    };
+    private static final double[] T_EXPANSION_DIVISORS = {4, 96, 384, 92160};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records single value.
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Adds all values recorded in other histogram to this one.
+     *
+     * @param other histogram to add
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        updateMin(other.min.get());
+        updateMax(other.max.get());
+    }
+
+    /**
+     * Returns number of recorded values.
+     *
+     * @return value count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return minimum in nanoseconds, 0 when nothing was recorded
+     */
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * Returns the biggest recorded value.
+     *
+     * @return maximum in nanoseconds, 0 when nothing was recorded
+     */
+    public long getMax() {
+        return count.get() == 0 ? 0 : max.get();
+    }
+
+    /**
+     * Returns arithmetic mean of recorded values.
+     *
+     * @return mean in nanoseconds, 0 when nothing was recorded
+     */
+    public double getMean() {
+        final long valueCount = count.get();
+        return valueCount == 0 ? 0 : (double) total.get() / valueCount;
+    }
+
+    /**
+     * Returns sample standard deviation of recorded values, every value is approximated by the middle of its bucket.
+     *
+     * @return standard deviation in nanoseconds, 0 when less than two values were recorded
+     */
+    public double getStdDeviation() {
+        final long valueCount = count.get();
+        if (valueCount < 2) {
+            return 0;
+        }
+        final double mean = getMean();
+        double squares = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                final double lowest = i == 0 ? 0 : highestValueOf(i - 1) + 1;
+                final double value = Math.max(getMin(), Math.min(getMax(), (lowest + highestValueOf(i)) / 2));
+                squares += bucketCount * (value - mean) * (value - mean);
+            }
+        }
+        return Math.sqrt(squares / (valueCount - 1));
+    }
+
+    /**
+     * Returns half-width of 99.9% confidence interval of the mean, assuming recorded values are independent.
+     *
+     * @return error of the mean in nanoseconds, {@link Double#NaN} when less than two values were recorded
+     */
+    public double getMeanError() {
+        final long valueCount = count.get();
+        if (valueCount < 2) {
+            return Double.NaN;
+        }
+        return tQuantile(valueCount - 1) * getStdDeviation() / Math.sqrt(valueCount);
+    }
+
+    /**
+     * Returns value below or equal to which given percent of recorded values are.
+     *
+     * @param percentile percentile, from 0 to 100
+     * @return value in nanoseconds (upper bound of the bucket), 0 when nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long valueCount = count.get();
+        if (valueCount == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, PERCENT) / PERCENT * valueCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(getMax(), highestValueOf(i)));
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder("count=").append(getCount())
+                .append(", min=").append(micros(getMin()));
+        for (final double percentile : REPORTED_PERCENTILES) {
+            result.append(", p").append(percentile == Math.rint(percentile) ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile)).append('=').append(micros(getValueAtPercentile(percentile)));
+        }
+        return result.append(", max=").append(micros(getMax())).append(" [us]").toString();
+    }
+
+    /**
+     * Adds values to single bucket, used to restore stored histogram.
+     *
+     * @param index       bucket index
+     * @param bucketCount number of values, every one is treated as the highest value of the bucket
+     */
+    void add(final int index, final long bucketCount) {
+        final long value = highestValueOf(index);
+        counts.addAndGet(index, bucketCount);
+        count.addAndGet(bucketCount);
+        total.addAndGet(value * bucketCount);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Returns number of values recorded in single bucket.
+     *
+     * @param index bucket index
+     * @return value count
+     */
+    long getCountAt(final int index) {
+        return counts.get(index);
+    }
+
+    /** Returns two-sided 99.9% quantile of Student's t-distribution. */
+    static double tQuantile(final long degreesOfFreedom) {
+        if (degreesOfFreedom <= T_QUANTILES.length) {
+            return T_QUANTILES[(int) degreesOfFreedom - 1];
+        }
+        final double zSquare = Z_QUANTILE * Z_QUANTILE;
+        double result = Z_QUANTILE;
+        double inverse = 1;
+        for (int i = 0; i < T_EXPANSION.length; i++) {
+            double polynomial = 0;
+            for (int j = T_EXPANSION[i].length - 1; j >= 0; j--) {
+                polynomial = polynomial * zSquare + T_EXPANSION[i][j];
+            }
+            inverse /= degreesOfFreedom;
+            result += polynomial * Z_QUANTILE / T_EXPANSION_DIVISORS[i] * inverse;
+        }
+        return result;
+    }
+
+    static int bucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return exponent * HALF_SUB_BUCKET_COUNT + (int) (value >>> exponent);
+    }
+
+    static long highestValueOf(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = index / HALF_SUB_BUCKET_COUNT - 1;
+        final long subBucket = index % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+
+    private static String micros(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MICRO);
+    }
+
+    private void updateMin(final long value) {
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    private void updateMax(final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
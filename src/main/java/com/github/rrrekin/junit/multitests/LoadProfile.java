@@ -0,0 +1,57 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Turns @{@link Parallel} test into an open workload model: executions are started at given rate (optionally reached
+ * in steps) instead of all at once, threads of the parallel test only limit how many of them can run concurrently.
+ * Latency of every execution is measured from its intended start time, so time spent waiting for a free thread when
+ * the tested code cannot keep up with the rate is included (no coordinated omission).
+ *
+ * <p>Executions are scheduled until the plateau ends, or when {@link #plateauMillis()} is not set, until number of
+ * @{@link Parallel#invocations()} or @{@link Parallel#forMillis()} time budget is reached - one of them has to be set.
+ * Used by the MultiTestsRule together with @{@link Parallel} annotation, otherwise ignored.</p>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface LoadProfile {
+
+    long DEFAULT_STEP_MS = 1000;
+
+    /** Target rate of started executions per second. */
+    double opsPerSecond();
+
+    /**
+     * Number of steps in which the rate is ramped up to the target, e.g. with 4 steps the test runs at 25%, 50% and 75%
+     * of the target rate before the plateau. No ramp-up by default.
+     */
+    int rampSteps() default 0;
+
+    /** Duration of a single ramp-up step in milliseconds. */
+    long stepMillis() default DEFAULT_STEP_MS;
+
+    /** Time in milliseconds the target rate is held after ramp-up. */
+    long plateauMillis() default 0;
+}
@@ -0,0 +1,88 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Rounds of a repeated test executed in lockstep by all threads of a parallel test. Threads wait for each other on a
+ * reusable barrier before every round, so every repetition starts in all threads at the same time instead of only the
+ * first one. The decision to start next round is made once per round by the last thread arriving at the barrier, so
+ * all threads execute the same number of rounds, also with time budget. Failure of a round does not break the barrier,
+ * it makes it the last round, so no thread is left waiting for the failed one.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class Lockstep implements Runnable {
+
+    private final CyclicBarrier barrier;
+    private final int rounds;
+    private final long durationNanos;
+    /** Number of started rounds, accessed only by barrier action. */
+    private int round;
+    private long startNanos;
+    private volatile boolean finished;
+    private volatile boolean failed;
+
+    /**
+     * Creates lockstep.
+     *
+     * @param threads       number of threads executing the rounds
+     * @param rounds        number of rounds, ignored when time budget is set
+     * @param durationNanos time budget, 0 when not set
+     */
+    Lockstep(final int threads, final int rounds, final long durationNanos) {
+        this.barrier = new CyclicBarrier(threads, this);
+        this.rounds = rounds;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Waits for all threads to finish previous round.
+     *
+     * @return {@code true} when next round should be executed
+     * @throws InterruptedException when this or other waiting thread was interrupted
+     */
+    boolean nextRound() throws InterruptedException {
+        try {
+            barrier.await();
+        } catch (final BrokenBarrierException ex) {
+            throw new InterruptedException("Other thread of lockstep test was interrupted");
+        }
+        return !finished;
+    }
+
+    /** Makes the current round the last one. */
+    void failed() {
+        failed = true;
+    }
+
+    /** Barrier action deciding if next round is executed. */
+    @Override
+    public void run() {
+        if (round == 0) {
+            startNanos = System.nanoTime();
+        }
+        if (durationNanos > 0) {
+            finished = failed || System.nanoTime() - startNanos >= durationNanos;
+        } else {
+            finished = failed || round >= rounds;
+        }
+        round++;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Fails the test when its invocations allocate on average more memory than the limit, e.g. to guard code that is
+ * expected to be allocation-free. First invocations are treated as warm-up and not counted. Used by the MultiTestsRule
+ * together with @{@link Repeat} or @{@link Parallel} annotations, single execution is measured when they are not
+ * present. The test is skipped on JVMs that cannot measure memory allocated by threads.
+ *
+ * <p>Measured memory includes reflective invocation of the test method by JUnit, which usually allocates a few dozen
+ * bytes until it is optimized away by the JIT compiler - limit for allocation-free code should include some margin.</p>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface MaxAllocation {
+
+    int DEFAULT_WARMUP = 10;
+
+    /** Maximum allowed average number of bytes allocated by single invocation. */
+    long bytesPerInvocation();
+
+    /**
+     * Number of first invocations not counted. It is reduced when the test has fewer invocations, so at least the last
+     * one is measured, e.g. single execution of not repeated test is measured without warm-up.
+     */
+    int warmup() default DEFAULT_WARMUP;
+}
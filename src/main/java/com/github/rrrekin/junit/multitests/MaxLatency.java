@@ -0,0 +1,42 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Fails the test when given percentile of invocation latencies exceeds the limit. Used by the MultiTestsRule together
+ * with @{@link Repeat} or @{@link Parallel} annotations, single execution is measured when they are not present.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface MaxLatency {
+
+    double DEFAULT_PERCENTILE = 99;
+
+    /** Checked latency percentile, from 0 to 100. */
+    double percentile() default DEFAULT_PERCENTILE;
+
+    /** Maximum allowed latency in microseconds. */
+    long micros();
+}
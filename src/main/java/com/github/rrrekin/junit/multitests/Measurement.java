@@ -0,0 +1,269 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies of test invocations measured during single test execution. Every worker thread records to its own
+ * histogram (assigned in order threads create their first snapshot), histograms are merged when results are read.
+ * Number of histograms is limited, so tests with thousands of threads share them. Optionally it also collects {@link ResourceUsage} of invocations and
+ * garbage collections that happened during the test ({@link GcMonitor}), and
+ * streams record of every invocation to {@link ResultSink}.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class Measurement {
+
+    /** Maximum number of histograms per available processor. */
+    private static final int HISTOGRAMS_PER_PROCESSOR = 4;
+    /** Index of collection count in invocation snapshot, after resource usage values. */
+    private static final int GC_COUNT = ResourceUsage.SNAPSHOT_SIZE;
+    /** Index of thread in invocation snapshot, every snapshot gets its own. */
+    private static final int THREAD_INDEX = GC_COUNT + 1;
+    /** Index of invocation count in invocation snapshot. */
+    private static final int ITERATION = THREAD_INDEX + 1;
+    /** Index of histogram of the thread in invocation snapshot. */
+    private static final int HISTOGRAM = ITERATION + 1;
+    /** Value of {@link #measuredSince} before end of warm-up. */
+    private static final long NOT_WARMED_UP = Long.MIN_VALUE;
+
+    private final LatencyHistogram[] histograms;
+    private final ResourceUsage resources;
+    private final GcMonitor gcMonitor;
+    private final AtomicInteger snapshots = new AtomicInteger();
+    private final AtomicInteger recordingThreads = new AtomicInteger();
+    /** Histogram index of every thread, so workers do not share histograms even with new snapshot per invocation. */
+    private final ThreadLocal<Integer> histogramIndex = new ThreadLocal<Integer>();
+    private final AtomicLong measuredSince = new AtomicLong(NOT_WARMED_UP);
+    private final AtomicLong warmupInvocations = new AtomicLong();
+    private final AtomicInteger unsteadyThreads = new AtomicInteger();
+    private volatile long startSkew = -1;
+    private ResultSink sink;
+    private String testName;
+    private int testId;
+
+    /**
+     * Creates measurement of latencies only.
+     *
+     * @param threads number of threads recording invocations
+     */
+    Measurement(final int threads) {
+        this(threads, null, null);
+    }
+
+    /**
+     * Creates measurement.
+     *
+     * @param threads   number of threads recording invocations
+     * @param resources resource usage of invocations, {@code null} when not measured
+     * @param gcMonitor monitor of garbage collections, {@code null} when not monitored
+     */
+    Measurement(final int threads, final ResourceUsage resources, final GcMonitor gcMonitor) {
+        this.resources = resources;
+        this.gcMonitor = gcMonitor;
+        final int count = Math.max(1,
+                Math.min(threads, HISTOGRAMS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()));
+        histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Sets sink invocation records are written to.
+     *
+     * @param resultSink result sink
+     * @param name       test display name, registered in the sink when the test starts
+     * @return this measurement
+     */
+    Measurement withResultSink(final ResultSink resultSink, final String name) {
+        this.sink = resultSink;
+        this.testName = name;
+        return this;
+    }
+
+    /**
+     * Creates array keeping values read before invocation, every array gets next thread index and histogram of current
+     * thread.
+     *
+     * @return new snapshot array, reused for all invocations of the thread
+     */
+    long[] newSnapshot() {
+        final long[] snapshot = new long[HISTOGRAM + 1];
+        snapshot[THREAD_INDEX] = snapshots.getAndIncrement();
+        Integer histogram = histogramIndex.get();
+        if (histogram == null) {
+            histogram = recordingThreads.getAndIncrement() % histograms.length;
+            histogramIndex.set(histogram);
+        }
+        snapshot[HISTOGRAM] = histogram;
+        return snapshot;
+    }
+
+    /**
+     * Starts monitoring of the whole test.
+     *
+     * @throws IOException when the test cannot be registered in result sink
+     */
+    void start() throws IOException {
+        if (sink != null) {
+            testId = sink.register(testName);
+        }
+        if (gcMonitor != null) {
+            gcMonitor.start();
+        }
+    }
+
+    /** Stops monitoring of the whole test. */
+    void stop() {
+        if (gcMonitor != null) {
+            gcMonitor.stop();
+        }
+    }
+
+    /**
+     * Marks end of warm-up invocations of current thread, measured time starts when the first thread ends warm-up.
+     *
+     * @param invocations number of warm-up invocations of the thread
+     * @param steady      {@code false} when adaptive warm-up ended before steady state was reached
+     */
+    void warmedUp(final long invocations, final boolean steady) {
+        measuredSince.compareAndSet(NOT_WARMED_UP, System.nanoTime());
+        warmupInvocations.addAndGet(invocations);
+        if (!steady) {
+            unsteadyThreads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns number of warm-up invocations of all threads.
+     *
+     * @return invocation count
+     */
+    long getWarmupInvocations() {
+        return warmupInvocations.get();
+    }
+
+    /**
+     * Returns number of threads which adaptive warm-up reached time cap before steady state.
+     *
+     * @return thread count
+     */
+    int getUnsteadyThreads() {
+        return unsteadyThreads.get();
+    }
+
+    /**
+     * Returns duration of measured part of the test, excluding warm-up.
+     *
+     * @param startNanos test start as returned by {@link System#nanoTime()}
+     * @param endNanos   test end as returned by {@link System#nanoTime()}
+     * @return measured time in nanoseconds
+     */
+    long measuredNanos(final long startNanos, final long endNanos) {
+        final long since = measuredSince.get();
+        return endNanos - (since == NOT_WARMED_UP ? startNanos : since);
+    }
+
+    /**
+     * Records time between the first and the last parallel thread starting the test.
+     *
+     * @param nanos start skew in nanoseconds
+     */
+    void recordStartSkew(final long nanos) {
+        startSkew = nanos;
+    }
+
+    /**
+     * Returns time between the first and the last parallel thread starting the test.
+     *
+     * @return start skew in nanoseconds, -1 when not recorded
+     */
+    long getStartSkew() {
+        return startSkew;
+    }
+
+    /**
+     * Reads values needed to measure invocation executed by current thread, before it starts.
+     *
+     * @param snapshot array created by {@link #newSnapshot()}
+     */
+    void begin(final long[] snapshot) {
+        if (gcMonitor != null) {
+            snapshot[GC_COUNT] = gcMonitor.collectionCount();
+        }
+        if (resources != null) {
+            resources.begin(snapshot);
+        }
+    }
+
+    /**
+     * Records measurements of invocation executed by current thread, after it ends.
+     *
+     * @param snapshot   array filled by {@link #begin(long[])}
+     * @param startNanos invocation start (or its intended start) as returned by {@link System#nanoTime()}
+     * @param failure    invocation failure, {@code null} on success
+     */
+    void end(final long[] snapshot, final long startNanos, final Throwable failure) {
+        final long latencyNanos = System.nanoTime() - startNanos;
+        if (resources != null) {
+            resources.end(snapshot);
+        }
+        histograms[(int) snapshot[HISTOGRAM]].record(latencyNanos);
+        if (gcMonitor != null) {
+            gcMonitor.invoked(snapshot[GC_COUNT], latencyNanos);
+        }
+        if (sink != null) {
+            sink.write(testId, (int) snapshot[THREAD_INDEX], snapshot[ITERATION], startNanos, latencyNanos, failure);
+        }
+        snapshot[ITERATION]++;
+    }
+
+    /**
+     * Returns resource usage of invocations.
+     *
+     * @return resource usage, {@code null} when not measured
+     */
+    ResourceUsage getResources() {
+        return resources;
+    }
+
+    /**
+     * Returns garbage collections that happened during the test.
+     *
+     * @return collection monitor, {@code null} when not monitored
+     */
+    GcMonitor getGcMonitor() {
+        return gcMonitor;
+    }
+
+    /**
+     * Returns all recorded latencies.
+     *
+     * @return new histogram merged from per thread ones
+     */
+    LatencyHistogram getLatencies() {
+        final LatencyHistogram result = new LatencyHistogram();
+        for (final LatencyHistogram histogram : histograms) {
+            result.add(histogram);
+        }
+        return result;
+    }
+}
@@ -15,19 +15,28 @@
  */
 package com.github.rrrekin.junit.multitests;
 
+import org.junit.AssumptionViolatedException;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 
-import java.util.List;
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CyclicBarrier;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * JUnit 4 test rule that enables multiple test executions. Using provided annotations: @{@link Retry}, @{@link Repeat}
@@ -40,49 +49,384 @@ import java.util.concurrent.TimeoutException;
  * synchronously using cyclic barrier</li>
  * </ul>
  *
+ * <p>Parallel tests run on threads of a {@link WorkerPool}, by default the JVM-wide {@link WorkerPool#shared()} one.
+ * Other pool can be set with {@link #withWorkerPool(WorkerPool)}. Alternatively they can run on virtual threads, see
+ * {@link ExecutionMode}.</p>
+ *
+ * <p>With @{@link LoadProfile} annotation parallel test executions are started at given rate instead of all at once.</p>
+ *
+ * <p>When report stream is set with {@link #reportTo(PrintStream)}, latency of every repeated or parallel invocation is
+ * measured and summary with throughput and latency percentiles is printed after the test. Tests can also be failed when
+ * measured performance is worse than required by @{@link MaxLatency}, @{@link MinThroughput} or @{@link MaxAllocation}
+ * annotations. With
+ * {@link #withResourceUsage(boolean)} the summary also includes CPU time, blocking, waiting and allocated memory of the
+ * invocations, and with {@link #withGcMonitoring(boolean)} garbage collections that happened during the test. Record
+ * of every invocation can be streamed to a file with {@link #withResultSink(ResultSink)}. Latencies can be compared
+ * with results of previous runs kept in {@link BaselineStore}. Stacks of threads executing repeated and parallel
+ * tests can be sampled by {@link SamplingProfiler}. Invocation events are delivered to {@link InvocationListener}s
+ * and counted by {@link InvocationMetrics} JMX MBean.</p>
+ *
  * @author Michal Rudewicz <michal.rudewicz@gmail.com>
  */
 public class MultiTestsRule implements TestRule {
 
+    private WorkerPool workerPool;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private PrintStream reportStream;
+    private boolean resourceUsage;
+    private boolean gcMonitoring;
+    private ResultSink resultSink;
+    private BaselineStore baselineStore;
+    private SamplingProfiler profiler;
+    private final List<InvocationListener> listeners = new ArrayList<InvocationListener>();
+    private InvocationMetrics metrics;
+
+    /**
+     * Sets pool of threads used to execute @{@link Parallel} tests.
+     *
+     * @param pool worker pool, {@code null} restores the shared JVM-wide pool
+     * @return this rule
+     */
+    public MultiTestsRule withWorkerPool(final WorkerPool pool) {
+        this.workerPool = pool;
+        return this;
+    }
+
+    /**
+     * Sets kind of threads used to execute @{@link Parallel} tests that do not specify it in the annotation.
+     *
+     * @param mode execution mode, {@link ExecutionMode#DEFAULT} or {@code null} restores platform threads
+     * @return this rule
+     */
+    public MultiTestsRule withExecutionMode(final ExecutionMode mode) {
+        this.executionMode = mode == null || mode == ExecutionMode.DEFAULT ? ExecutionMode.PLATFORM : mode;
+        return this;
+    }
+
+    /**
+     * Sets stream the performance summary of repeated and parallel tests is printed to.
+     *
+     * @param stream report stream, {@code null} disables measurements and reporting
+     * @return this rule
+     */
+    public MultiTestsRule reportTo(final PrintStream stream) {
+        this.reportStream = stream;
+        return this;
+    }
+
+    /**
+     * Enables measurement of CPU time, monitor blocking, waiting and allocated memory of every measured invocation.
+     * Reading these values from the JVM takes a few microseconds per invocation, so it is disabled by default.
+     *
+     * @param enabled {@code true} to measure resource usage
+     * @return this rule
+     */
+    public MultiTestsRule withResourceUsage(final boolean enabled) {
+        this.resourceUsage = enabled;
+        return this;
+    }
+
+    /**
+     * Enables monitoring of garbage collections during measured tests. Collection count, pause times, memory promoted
+     * to old generation and number of invocations overlapping collections are reported.
+     *
+     * @param enabled {@code true} to monitor garbage collections
+     * @return this rule
+     */
+    public MultiTestsRule withGcMonitoring(final boolean enabled) {
+        this.gcMonitoring = enabled;
+        return this;
+    }
+
+    /**
+     * Sets sink every invocation of repeated and parallel tests is written to.
+     *
+     * @param sink result sink, {@code null} disables writing
+     * @return this rule
+     */
+    public MultiTestsRule withResultSink(final ResultSink sink) {
+        this.resultSink = sink;
+        return this;
+    }
+
+    /**
+     * Sets store of baselines latencies of repeated and parallel tests are compared with. Tests fail when their
+     * latencies are significantly greater than baseline ones.
+     *
+     * @param store baseline store, {@code null} disables comparison
+     * @return this rule
+     */
+    public MultiTestsRule withBaseline(final BaselineStore store) {
+        this.baselineStore = store;
+        return this;
+    }
+
+    /**
+     * Sets profiler sampling stacks of threads executing repeated and parallel tests.
+     *
+     * @param samplingProfiler profiler, {@code null} disables profiling
+     * @return this rule
+     */
+    public MultiTestsRule withProfiler(final SamplingProfiler samplingProfiler) {
+        this.profiler = samplingProfiler;
+        return this;
+    }
+
+    /**
+     * Adds listener receiving invocation events of repeated and parallel tests and retries of retried tests.
+     *
+     * @param listener invocation listener
+     * @return this rule
+     */
+    public MultiTestsRule withListener(final InvocationListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Enables live invocation counters exposed as JMX MBean, see {@link InvocationMetrics}.
+     *
+     * @param enabled {@code true} to update the counters
+     * @return this rule
+     */
+    public MultiTestsRule withJmxMetrics(final boolean enabled) {
+        this.metrics = enabled ? InvocationMetrics.registered() : null;
+        return this;
+    }
+
     @Override
     public Statement apply(final Statement statement, final Description description) {
+        if (profiler == null || description.getAnnotation(Repeat.class) == null
+                && description.getAnnotation(Parallel.class) == null
+                && description.getAnnotation(ScalingSweep.class) == null) {
+            return wrap(statement, description);
+        }
+        final ProfiledStatement profiled = new ProfiledStatement(statement);
+        return new ProfilingStatement(wrap(profiled, description), profiled, profiler, description);
+    }
+
+    private Statement wrap(final Statement statement, final Description description) {
         Statement result = statement;
         final Retry retry = description.getAnnotation(Retry.class);
+        final Repeat repeat = description.getAnnotation(Repeat.class);
+        final Parallel parallel = description.getAnnotation(Parallel.class);
+        final Measurement measurement = createMeasurement(description, repeat, parallel);
+        final InvocationEvents events = createEvents(description);
         if (retry != null) {
-            final int times = retry.value();
-            result = new RetryStatement(times, result);
+            result = createRetryStatement(retry, description, result).withEvents(events);
+        }
+        final ScalingSweep sweep = description.getAnnotation(ScalingSweep.class);
+        if (sweep != null) {
+            return createScalingSweepStatement(sweep, result, description);
         }
-        final Repeat repeat = description.getAnnotation(Repeat.class);
         if (repeat != null) {
             final int times = repeat.value();
-            result = new RepeatStatement(times, result);
+            result = new RepeatStatement(times, result, measurement).withDuration(repeat.forMillis())
+                    .withWarmup(repeat.warmup()).withAdaptiveWarmup(repeat.warmupMillis())
+                    .withLockstep(createLockstep(repeat, parallel, description.getAnnotation(LoadProfile.class)))
+                    .withEvents(events);
+        } else if (parallel == null && measurement != null) {
+            // performance limits of not repeated test are checked on its single execution
+            result = new RepeatStatement(1, result, measurement);
         }
-        final Parallel parallel = description.getAnnotation(Parallel.class);
         if (parallel != null) {
-            final int times = parallel.value();
-            final long timeout = parallel.timeout();
-            result = new ParallelStatement(times, timeout, result);
+            // nested repeat statement measures single repetitions
+            result = createParallelStatement(parallel, description.getAnnotation(LoadProfile.class), result,
+                    repeat == null ? measurement : null).withStartSkew(measurement)
+                    .withNestedDuration(nestedDurationMillis(repeat))
+                    .withEvents(repeat == null ? events : null);
+        }
+        if (measurement != null) {
+            result = new MeasuredStatement(result, measurement, description, reportStream)
+                    .withLimits(description.getAnnotation(MaxLatency.class),
+                            description.getAnnotation(MinThroughput.class))
+                    .withAllocationLimit(description.getAnnotation(MaxAllocation.class))
+                    .withBaseline(baselineStore)
+                    .withBenchmark(isBenchmark(repeat));
         }
 
         return result;
     }
 
-    /** Wrapping statement that executes inner statement until success or retry limit reached. */
+    private InvocationEvents createEvents(final Description description) {
+        if (listeners.isEmpty() && metrics == null) {
+            return null;
+        }
+        return new InvocationEvents(EventRing.shared(), listeners.toArray(new InvocationListener[listeners.size()]),
+                metrics, description);
+    }
+
+    private RetryStatement createRetryStatement(final Retry retry, final Description description,
+                                                final Statement statement) {
+        // attempts are invocations of a test that is not repeated nor parallel
+        final RetryStatement result = new RetryStatement(retry.value(), statement).withAttemptEvents(
+                description.getAnnotation(Repeat.class) == null && description.getAnnotation(Parallel.class) == null);
+        final Hedged hedged = description.getAnnotation(Hedged.class);
+        if (hedged == null) {
+            return result;
+        }
+        return result.withHedging(hedged.value(), hedged.delayMillis(),
+                workerPool == null ? WorkerPool.shared() : workerPool);
+    }
+
+    private static boolean isBenchmark(final Repeat repeat) {
+        return repeat != null && (repeat.warmup() > 0 || repeat.warmupMillis() > 0);
+    }
+
+    private Measurement createMeasurement(final Description description, final Repeat repeat,
+                                          final Parallel parallel) {
+        final MaxAllocation maxAllocation = description.getAnnotation(MaxAllocation.class);
+        final boolean limited = description.getAnnotation(MaxLatency.class) != null
+                || description.getAnnotation(MinThroughput.class) != null || maxAllocation != null;
+        final boolean reported = isCollectingResults() && (repeat != null || parallel != null);
+        if (!limited && !reported) {
+            return null;
+        }
+        final Measurement measurement = new Measurement(threadCount(parallel),
+                createResourceUsage(maxAllocation, measuredInvocations(repeat, parallel,
+                        description.getAnnotation(LoadProfile.class))), gcMonitoring ? new GcMonitor() : null);
+        return resultSink == null ? measurement : measurement.withResultSink(resultSink, description.getDisplayName());
+    }
+
+    /** Checks if results of repeated and parallel tests are reported, stored or compared with baselines. */
+    private boolean isCollectingResults() {
+        return reportStream != null || resultSink != null || baselineStore != null;
+    }
+
+    private ResourceUsage createResourceUsage(final MaxAllocation maxAllocation, final long invocations) {
+        if (maxAllocation != null) {
+            // at least the last invocation is measured, single execution without warm-up
+            return new ResourceUsage(Math.max(0, Math.min(maxAllocation.warmup(), invocations - 1)));
+        }
+        return resourceUsage ? new ResourceUsage() : null;
+    }
+
+    /** Returns number of measured invocations of the test, {@link Long#MAX_VALUE} when limited by time. */
+    private static long measuredInvocations(final Repeat repeat, final Parallel parallel,
+                                            final LoadProfile loadProfile) {
+        final long repetitions;
+        if (repeat == null) {
+            repetitions = 1;
+        } else {
+            repetitions = repeat.forMillis() > 0 ? Long.MAX_VALUE : repeat.value();
+        }
+        if (parallel == null || repetitions == Long.MAX_VALUE) {
+            return repetitions;
+        }
+        if (repeat != null) {
+            return repetitions * threadCount(parallel);
+        }
+        if (parallel.invocations() > 0) {
+            return parallel.invocations();
+        }
+        return parallel.forMillis() > 0 || loadProfile != null ? Long.MAX_VALUE : threadCount(parallel);
+    }
+
+    /** Returns the longest time repetitions of a single parallel execution can take by design. */
+    private static long nestedDurationMillis(final Repeat repeat) {
+        return repeat == null ? 0 : repeat.forMillis() + repeat.warmupMillis();
+    }
+
+    private ParallelStatement createParallelStatement(final Parallel parallel, final LoadProfile loadProfile,
+                                                      final Statement statement, final Measurement measurement) {
+        final int threads = threadCount(parallel);
+        final long invocations;
+        if (parallel.invocations() > 0) {
+            invocations = parallel.invocations();
+        } else {
+            // load profile limits number of invocations by its own duration
+            invocations = parallel.forMillis() > 0 || loadProfile != null ? Long.MAX_VALUE : threads;
+        }
+        final WorkerPool pool = workerPool == null ? WorkerPool.shared() : workerPool;
+        final ExecutionMode mode = parallel.mode() == null || parallel.mode() == ExecutionMode.DEFAULT
+                ? executionMode : parallel.mode();
+        return new ParallelStatement(threads, invocations, parallel.timeout(), statement, pool, mode, measurement)
+                .withFailFast(parallel.failFast())
+                .withDuration(parallel.forMillis())
+                .withLoadProfile(loadProfile == null ? null : ArrivalSchedule.of(loadProfile))
+                .withSpinStart(parallel.spinStart());
+    }
+
+    private ScalingSweepStatement createScalingSweepStatement(final ScalingSweep sweep, final Statement statement,
+                                                              final Description description) {
+        final int maxThreads = sweep.maxThreads() > 0 ? sweep.maxThreads() : Runtime.getRuntime().availableProcessors();
+        return new ScalingSweepStatement(maxThreads, sweep.millisPerLevel(), statement,
+                workerPool == null ? WorkerPool.shared() : workerPool, executionMode, description,
+                reportStream)
+                .withWarmup(sweep.warmupMillis())
+                .withMinEfficiency(sweep.minEfficiency(), sweep.efficiencyThreads());
+    }
+
+    private static Lockstep createLockstep(final Repeat repeat, final Parallel parallel,
+                                           final LoadProfile loadProfile) {
+        if (parallel == null || !parallel.lockstep()) {
+            return null;
+        }
+        final int threads = threadCount(parallel);
+        if (parallel.invocations() > 0 && parallel.invocations() != threads || parallel.forMillis() > 0
+                || loadProfile != null) {
+            throw new IllegalStateException("Lockstep parallel test requires single invocation per thread, "
+                    + "without time budget and load profile");
+        }
+        return new Lockstep(threads, repeat.value(), TimeUnit.MILLISECONDS.toNanos(repeat.forMillis()));
+    }
+
+    private static int threadCount(final Parallel parallel) {
+        if (parallel == null) {
+            return 1;
+        }
+        return parallel.threads() > 0 ? parallel.threads() : parallel.value();
+    }
+
+    /**
+     * Wrapping statement that executes inner statement until success or retry limit reached. Attempts are executed one
+     * after another, or overlapping on worker pool threads when hedging is set.
+     */
     static class RetryStatement extends Statement {
         private final int times;
         private final Statement statement;
+        private int concurrentAttempts = 1;
+        private long delayNanos;
+        private WorkerPool pool;
+        private InvocationEvents events;
+        private boolean attemptEvents;
 
         RetryStatement(final int times, final Statement statement) {
             this.times = times;
             this.statement = statement;
         }
 
+        RetryStatement withEvents(final InvocationEvents invocationEvents) {
+            this.events = invocationEvents;
+            return this;
+        }
+
+        /** Sets if every attempt publishes invocation start and end, when the statement is not nested in another one. */
+        RetryStatement withAttemptEvents(final boolean publish) {
+            this.attemptEvents = publish;
+            return this;
+        }
+
+        RetryStatement withHedging(final int attempts, final long delayMillis, final WorkerPool workerPool) {
+            this.concurrentAttempts = attempts;
+            this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            this.pool = workerPool;
+            return this;
+        }
+
         @Override
         public void evaluate() throws Throwable {
+            if (concurrentAttempts > 1 && times > 1) {
+                new HedgedAttempts().evaluate();
+                return;
+            }
             Throwable lastError = null;
             for (int i = 0; i < times; i++) {
+                if (lastError != null && events != null) {
+                    events.retried(i + 1, lastError);
+                }
                 try {
-                    statement.evaluate();
+                    evaluateAttempt();
                     return;
                 } catch (final Throwable ex) {
                     lastError = ex;
@@ -92,68 +436,977 @@ public class MultiTestsRule implements TestRule {
                 throw lastError;
             }
         }
+
+        /** Evaluates single attempt in current thread, publishing its start and end when requested. */
+        private void evaluateAttempt() throws Throwable {
+            if (!attemptEvents || events == null) {
+                statement.evaluate();
+                return;
+            }
+            events.started();
+            final long start = System.nanoTime();
+            try {
+                statement.evaluate();
+            } catch (final Throwable t) {
+                events.finished(System.nanoTime() - start, t);
+                throw t;
+            }
+            events.finished(System.nanoTime() - start, null);
+        }
+
+        /** Single evaluation with overlapping attempts, coordinated by the evaluating thread. */
+        private final class HedgedAttempts {
+            private final BlockingQueue<Attempt> finished = new LinkedBlockingQueue<Attempt>();
+            private final List<Attempt> attempts = new ArrayList<Attempt>();
+            private int completed;
+            private long lastStart;
+            /** Set when the pool rejected a hedge, no more hedges are started until a running attempt finishes. */
+            private boolean saturated;
+
+            void evaluate() throws Throwable {
+                try {
+                    start();
+                    while (true) {
+                        final Attempt attempt = awaitAttempt();
+                        if (attempt == null) {
+                            // running attempts did not finish in hedge delay
+                            start();
+                            continue;
+                        }
+                        completed++;
+                        saturated = false;
+                        if (attempt.failure == null) {
+                            return;
+                        }
+                        if (attempts.size() < times) {
+                            if (events != null) {
+                                events.retried(attempts.size() + 1, attempt.failure);
+                            }
+                            start();
+                        } else if (completed == attempts.size()) {
+                            throw attempt.failure;
+                        }
+                    }
+                } finally {
+                    for (final Attempt attempt : attempts) {
+                        attempt.interrupt();
+                    }
+                }
+            }
+
+            /** Waits for the next finished attempt, returns {@code null} when next attempt should be started. */
+            private Attempt awaitAttempt() throws InterruptedException {
+                final boolean canStart = !saturated && attempts.size() < times
+                        && attempts.size() - completed < concurrentAttempts;
+                if (!canStart) {
+                    return finished.take();
+                }
+                if (delayNanos == 0) {
+                    return null;
+                }
+                return finished.poll(lastStart + delayNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+
+            /**
+             * Starts next attempt on pool thread. When the pool is saturated, hedge is not started and running attempts
+             * are awaited instead, attempt that has nothing to wait for is started on its own thread.
+             */
+            private void start() {
+                final Attempt attempt = new Attempt();
+                lastStart = System.nanoTime();
+                try {
+                    pool.executeWithoutWaiting(attempt);
+                } catch (final RejectedExecutionException ex) {
+                    if (completed < attempts.size()) {
+                        saturated = true;
+                        return;
+                    }
+                    final Thread thread = new Thread(attempt, "multitests-attempt");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                attempts.add(attempt);
+            }
+
+            /** Single attempt executed on worker pool thread. */
+            private final class Attempt implements Runnable {
+                /** Thread executing this attempt, {@code null} when not running. Guarded by this. */
+                private Thread thread;
+                private volatile boolean done;
+                private Throwable failure;
+
+                @Override
+                public void run() {
+                    synchronized (this) {
+                        if (done) {
+                            return;
+                        }
+                        thread = Thread.currentThread();
+                    }
+                    try {
+                        evaluateAttempt();
+                    } catch (final Throwable t) {
+                        failure = t;
+                    } finally {
+                        synchronized (this) {
+                            thread = null;
+                            done = true;
+                            // do not leave interrupted status to the next task of pool thread
+                            Thread.interrupted();
+                        }
+                        finished.add(this);
+                    }
+                }
+
+                /** Interrupts running attempt and prevents starting not yet started one. */
+                synchronized void interrupt() {
+                    done = true;
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }
     }
 
-    /** Wrapping statement that executes inner statement several times. */
+    /**
+     * Wrapping statement that executes inner statement several times or until time budget elapses, optionally measuring
+     * every execution.
+     */
     static class RepeatStatement extends Statement {
         private final int times;
         private final Statement statement;
+        private final Measurement measurement;
+        private long durationNanos;
+        private int warmup;
+        private long warmupMillis;
+        private Lockstep lockstep;
+        private InvocationEvents events;
 
         RepeatStatement(final int times, final Statement statement) {
+            this(times, statement, null);
+        }
+
+        RepeatStatement(final int times, final Statement statement, final Measurement measurement) {
             this.times = times;
             this.statement = statement;
+            this.measurement = measurement;
+        }
+
+        RepeatStatement withDuration(final long millis) {
+            this.durationNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        RepeatStatement withWarmup(final int invocations) {
+            this.warmup = invocations;
+            return this;
+        }
+
+        RepeatStatement withAdaptiveWarmup(final long maxMillis) {
+            this.warmupMillis = maxMillis;
+            return this;
+        }
+
+        RepeatStatement withLockstep(final Lockstep rounds) {
+            this.lockstep = rounds;
+            return this;
+        }
+
+        RepeatStatement withEvents(final InvocationEvents invocationEvents) {
+            this.events = invocationEvents;
+            return this;
         }
 
         @Override
         public void evaluate() throws Throwable {
-            for (int i = 0; i < times; i++) {
+            // statement may be evaluated by several parallel threads, each needs its own snapshot
+            final long[] snapshot = measurement == null ? null : measurement.newSnapshot();
+            warmUp();
+            if (lockstep != null) {
+                evaluateInLockstep(snapshot);
+            } else if (durationNanos > 0) {
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < durationNanos) {
+                    invoke(snapshot);
+                }
+            } else {
+                for (int i = 0; i < times; i++) {
+                    invoke(snapshot);
+                }
+            }
+        }
+
+        /** Executes unmeasured warm-up invocations, fixed number of them and then adaptive ones. */
+        private void warmUp() throws Throwable {
+            for (int i = 0; i < warmup; i++) {
+                statement.evaluate();
+            }
+            boolean steady = true;
+            long invocations = warmup;
+            if (warmupMillis > 0) {
+                final SteadyState steadyState = new SteadyState(warmupMillis);
+                do {
+                    statement.evaluate();
+                } while (!steadyState.invoked());
+                steady = steadyState.isReached();
+                invocations += steadyState.getInvocations();
+            }
+            if (measurement != null && invocations > 0) {
+                measurement.warmedUp(invocations, steady);
+            }
+        }
+
+        /** Executes rounds until the last one, failure of a round is thrown after it. */
+        private void evaluateInLockstep(final long[] snapshot) throws Throwable {
+            Throwable failure = null;
+            while (lockstep.nextRound()) {
+                try {
+                    invoke(snapshot);
+                } catch (final Throwable t) {
+                    failure = t;
+                    lockstep.failed();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void invoke(final long[] snapshot) throws Throwable {
+            if (measurement == null && events == null) {
                 statement.evaluate();
+                return;
+            }
+            if (measurement != null) {
+                measurement.begin(snapshot);
+            }
+            if (events != null) {
+                events.started();
+            }
+            final long start = System.nanoTime();
+            Throwable failure = null;
+            try {
+                statement.evaluate();
+            } catch (final Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                if (measurement != null) {
+                    measurement.end(snapshot, start, failure);
+                }
+                if (events != null) {
+                    events.finished(System.nanoTime() - start, failure);
+                }
             }
         }
     }
 
-    /** Wrapping statement that executes inner statement several times in parallel. */
+    /**
+     * Wrapping statement that executes inner statement several times in parallel on worker pool threads or on virtual
+     * threads. Invocations are distributed among threads by {@link InvocationScheduler}, so number of invocations may
+     * be much bigger than number of threads. With time budget set, threads keep taking invocations until it elapses.
+     * Threads still running on timeout (or after first failure in fail-fast mode) are interrupted and stop taking new
+     * invocations. With load profile set, invocations are taken in order and each of them is started not before its
+     * intended start time, latency is measured from that time.
+     */
     static class ParallelStatement extends Statement {
-        private final int times;
+        /** Final part of waiting for intended start time that is spent spinning instead of parking. */
+        private static final long SPIN_NANOS = 50000;
+        /** Longest single park, so waiting workers notice cancellation and end of time budget. */
+        private static final long MAX_PARK_NANOS = 1000000;
+        /** Longs per worker start time, so start times of different workers are in separate cache lines. */
+        private static final int START_SLOT_SIZE = 8;
+        private static final long NOT_STARTED = Long.MIN_VALUE;
+
+        private final int threads;
+        private final long invocations;
         private final long timeout;
         private final Statement statement;
-        private final CyclicBarrier startBarrier;
-        private final ExecutorService executor;
+        private final WorkerPool pool;
+        private final ExecutionMode mode;
+        private final Measurement measurement;
+        private final Watchdog watchdog = new Watchdog();
+        private boolean failFast;
+        private long durationNanos;
+        private long nestedDurationNanos;
+        private ArrivalSchedule schedule;
+        private boolean spinStart;
+        private Measurement skewMeasurement;
+        private InvocationEvents events;
 
         ParallelStatement(final int times, final long timeout, final Statement statement) {
-            this.times = times;
+            this(times, times, timeout, statement, WorkerPool.shared(), ExecutionMode.PLATFORM, null);
+        }
+
+        ParallelStatement(final int threads, final long invocations, final long timeout, final Statement statement,
+                          final WorkerPool pool, final ExecutionMode mode, final Measurement measurement) {
+            this.threads = threads;
+            this.invocations = invocations;
             this.timeout = timeout;
             this.statement = statement;
-            this.startBarrier = new CyclicBarrier(times);
-            this.executor = Executors.newFixedThreadPool(times);
+            this.pool = pool;
+            this.mode = mode;
+            this.measurement = measurement;
+        }
+
+        ParallelStatement withFailFast(final boolean cancelOnFailure) {
+            this.failFast = cancelOnFailure;
+            return this;
+        }
+
+        ParallelStatement withDuration(final long millis) {
+            this.durationNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        /**
+         * Sets the longest time single invocation can take by design (time budget and warm-up of nested repeat
+         * statement), it extends the timeout by that time for every invocation a thread executes.
+         */
+        ParallelStatement withNestedDuration(final long millis) {
+            this.nestedDurationNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        ParallelStatement withLoadProfile(final ArrivalSchedule arrivalSchedule) {
+            this.schedule = arrivalSchedule;
+            return this;
+        }
+
+        ParallelStatement withSpinStart(final boolean spin) {
+            this.spinStart = spin;
+            return this;
+        }
+
+        ParallelStatement withEvents(final InvocationEvents invocationEvents) {
+            this.events = invocationEvents;
+            return this;
+        }
+
+        /** Sets measurement start skew is recorded to, it can be other than the one measuring invocations. */
+        ParallelStatement withStartSkew(final Measurement startSkewMeasurement) {
+            this.skewMeasurement = startSkewMeasurement;
+            return this;
         }
 
         @Override
         public void evaluate() throws Throwable {
-            final List<Future<Throwable>> results = new ArrayList<Future<Throwable>>(times);
-            for (int i = 0; i < times; i++) {
-                results.add(executor.submit(new Callable<Throwable>() {
-                    @Override
-                    public Throwable call() throws Exception {
-                        try {
-                            startBarrier.await();
-                            statement.evaluate();
-                            return null;
-                        } catch (final Throwable t) {
-                            return t;
-                        }
+            final long scheduleNanos = scheduleNanos();
+            final ExecutorService virtualExecutor = mode == ExecutionMode.VIRTUAL ? VirtualThreads.newExecutor() : null;
+            if (virtualExecutor == null && threads > pool.getMaximumThreads()) {
+                throw new IllegalStateException("Parallel test requires " + threads
+                        + " threads, but worker pool allows " + pool.getMaximumThreads());
+            }
+            final Run run = new Run(createStartGate(virtualExecutor != null));
+            boolean completed = false;
+            String hangingThreads = null;
+            try {
+                for (int i = 0; i < threads; i++) {
+                    start(virtualExecutor, run, new Worker(i, run));
+                }
+                hangingThreads = awaitCompletion(run, timeoutNanos(scheduleNanos));
+                completed = hangingThreads == null;
+            } finally {
+                if (!completed || run.firstFailure.get() != null) {
+                    run.cancel();
+                }
+                if (virtualExecutor != null) {
+                    virtualExecutor.shutdown();
+                }
+            }
+            if (!completed) {
+                throw new TimeoutException("Not all parallel tests finished in given timeout. Unfinished threads:"
+                        + hangingThreads);
+            }
+            recordStartSkew(run);
+            run.throwFailure();
+        }
+
+        private void recordStartSkew(final Run run) {
+            if (skewMeasurement != null && run.firstFailure.get() == null) {
+                // all workers finished, their start times are visible after the done latch
+                skewMeasurement.recordStartSkew(run.startSkew());
+            }
+        }
+
+        private StartGate createStartGate(final boolean virtual) {
+            if (spinStart) {
+                return new StartGate.Spin(threads);
+            }
+            return virtual ? new StartGate.Latch(threads) : new StartGate.Barrier(threads);
+        }
+
+        /**
+         * Waits for the run to complete, checking periodically if its threads are deadlocked. Returns {@code null} when
+         * completed, or dump of unfinished threads on timeout - taken before the threads are interrupted.
+         */
+        private String awaitCompletion(final Run run, final long timeoutNanos) throws InterruptedException {
+            final long deadline = System.nanoTime() + timeoutNanos;
+            long remaining = timeoutNanos;
+            while (remaining > 0) {
+                if (run.done.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(Watchdog.CHECK_INTERVAL_MS)),
+                        TimeUnit.NANOSECONDS)) {
+                    return null;
+                }
+                final String deadlock = watchdog.findDeadlock(run.runningThreads());
+                if (deadlock != null) {
+                    throw new AssertionError("Deadlock detected between parallel test threads:" + deadlock);
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            return watchdog.dump(run.runningThreads());
+        }
+
+        /**
+         * Returns time all threads have to finish in: the timeout counted from the end of time budget and load profile,
+         * extended by nested duration of invocations executed by a single thread.
+         */
+        private long timeoutNanos(final long scheduleNanos) {
+            final long perThread = invocations == Long.MAX_VALUE ? 1 : (invocations + threads - 1) / threads;
+            final long nestedNanos = nestedDurationNanos == 0 ? 0
+                    : Math.min(perThread, Long.MAX_VALUE / nestedDurationNanos) * nestedDurationNanos;
+            return saturatedAdd(saturatedAdd(TimeUnit.MILLISECONDS.toNanos(timeout), durationNanos),
+                    saturatedAdd(scheduleNanos, nestedNanos));
+        }
+
+        private static long saturatedAdd(final long first, final long second) {
+            return second > Long.MAX_VALUE - first ? Long.MAX_VALUE : first + second;
+        }
+
+        /** Returns intended start time of the last scheduled invocation, 0 without load profile. */
+        private long scheduleNanos() {
+            if (schedule == null) {
+                return 0;
+            }
+            final long scheduled = Math.min(invocations, schedule.getInvocations());
+            if (scheduled == Long.MAX_VALUE) {
+                if (durationNanos == 0) {
+                    throw new IllegalStateException(
+                            "Load profile without plateau requires limited number of invocations or time budget");
+                }
+                // time budget limits the schedule
+                return 0;
+            }
+            return schedule.offsetOf(scheduled - 1);
+        }
+
+        private void start(final ExecutorService virtualExecutor, final Run run, final Runnable task) {
+            try {
+                if (virtualExecutor == null) {
+                    pool.execute(task);
+                } else {
+                    virtualExecutor.execute(task);
+                }
+            } catch (final RejectedExecutionException ex) {
+                // release already started threads waiting for the missing ones
+                run.cancel();
+                throw ex;
+            }
+        }
+
+        /** State of single parallel statement evaluation shared by its workers. */
+        private final class Run {
+            private final StartGate startGate;
+            private final InvocationScheduler scheduler = new InvocationScheduler(invocations, threads);
+            private final Throwable[] failures = new Throwable[threads];
+            private final Worker[] workers = new Worker[threads];
+            private final AtomicInteger running = new AtomicInteger(threads);
+            /** Released when all workers are finished or on the first failure in fail-fast mode. */
+            private final CountDownLatch done = new CountDownLatch(1);
+            private final AtomicReference<Throwable> firstFailure = new AtomicReference<Throwable>();
+            /** Index of the next invocation started according to the load profile. */
+            private final AtomicLong arrivals = new AtomicLong();
+            /** Start of time budget and load profile, set by the first worker passing the start gate. */
+            private final AtomicLong startTime = new AtomicLong();
+            /**
+             * Times workers passed the start gate, each worker writes only its own slot. Slots are padded to separate
+             * cache lines, so workers released together do not contend.
+             */
+            private final long[] startTimes = new long[threads * START_SLOT_SIZE];
+            private volatile boolean cancelled;
+
+            Run(final StartGate startGate) {
+                this.startGate = startGate;
+                for (int i = 0; i < threads; i++) {
+                    startTimes[i * START_SLOT_SIZE] = NOT_STARTED;
+                }
+            }
+
+            void started(final int index) {
+                final long now = System.nanoTime();
+                startTimes[index * START_SLOT_SIZE] = now;
+                if ((durationNanos > 0 || schedule != null) && startTime.get() == 0) {
+                    startTime.compareAndSet(0, now);
+                }
+            }
+
+            /** Returns time between the first and the last worker passing the start gate, read after they finished. */
+            long startSkew() {
+                long first = 0;
+                long last = 0;
+                boolean any = false;
+                for (int i = 0; i < threads; i++) {
+                    final long start = startTimes[i * START_SLOT_SIZE];
+                    if (start != NOT_STARTED) {
+                        first = any && first - start < 0 ? first : start;
+                        last = any && last - start > 0 ? last : start;
+                        any = true;
+                    }
+                }
+                return last - first;
+            }
+
+            boolean stopped() {
+                return cancelled || durationNanos > 0 && System.nanoTime() - startTime.get() >= durationNanos;
+            }
+
+            void failed(final int index, final Throwable failure) {
+                if (failures[index] == null) {
+                    failures[index] = failure;
+                }
+                if (failFast && firstFailure.compareAndSet(null, failure)) {
+                    done.countDown();
+                }
+            }
+
+            void finished() {
+                if (running.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+
+            /** Returns threads of workers that are still running. */
+            List<Thread> runningThreads() {
+                final List<Thread> result = new ArrayList<Thread>();
+                for (final Worker worker : workers) {
+                    final Thread thread = worker == null ? null : worker.getThread();
+                    if (thread != null) {
+                        result.add(thread);
+                    }
+                }
+                return result;
+            }
+
+            /** Stops taking new invocations and interrupts workers that are still running. */
+            void cancel() {
+                cancelled = true;
+                startGate.abort();
+                for (final Worker worker : workers) {
+                    if (worker != null) {
+                        worker.interrupt();
+                    }
+                }
+            }
+
+            void throwFailure() throws Throwable {
+                if (firstFailure.get() != null) {
+                    throw firstFailure.get();
+                }
+                for (final Throwable failure : failures) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+            }
+        }
+
+        /** Parallel test thread executing batches of invocations, it keeps only its first failure. */
+        private final class Worker implements Runnable {
+            private final int index;
+            private final Run run;
+            /** Thread executing this worker, {@code null} when not running. Guarded by this. */
+            private Thread thread;
+
+            Worker(final int index, final Run run) {
+                this.index = index;
+                this.run = run;
+                run.workers[index] = this;
+            }
+
+            @Override
+            public void run() {
+                synchronized (this) {
+                    thread = Thread.currentThread();
+                }
+                try {
+                    if (!run.cancelled) {
+                        run.startGate.arrive();
+                        run.started(index);
+                        executeInvocations();
+                    }
+                } catch (final Throwable t) {
+                    run.failed(index, t);
+                } finally {
+                    synchronized (this) {
+                        thread = null;
+                        // do not leave interrupted status to the next task of pool thread
+                        Thread.interrupted();
+                    }
+                    run.finished();
+                }
+            }
+
+            synchronized void interrupt() {
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            }
+
+            synchronized Thread getThread() {
+                return thread;
+            }
+
+            private void executeInvocations() {
+                final long[] snapshot = measurement == null ? null : measurement.newSnapshot();
+                if (schedule != null) {
+                    executeScheduledInvocations(snapshot);
+                    return;
+                }
+                final long[] batch = new long[2];
+                while (!run.stopped() && run.scheduler.next(index, batch)) {
+                    for (long i = batch[0]; i < batch[1] && !run.stopped(); i++) {
+                        invoke(0, snapshot);
                     }
-                }));
+                }
+            }
+
+            private void executeScheduledInvocations(final long[] snapshot) {
+                while (!run.stopped()) {
+                    final long invocation = run.arrivals.getAndIncrement();
+                    final long offset = invocation < invocations ? schedule.offsetOf(invocation) : -1;
+                    if (offset < 0) {
+                        return;
+                    }
+                    final long intendedStart = run.startTime.get() + offset;
+                    if (awaitStart(intendedStart)) {
+                        invoke(intendedStart, snapshot);
+                    }
+                }
+            }
+
+            /** Waits until given time, returns {@code false} when the run was stopped in the meantime. */
+            private boolean awaitStart(final long intendedStart) {
+                long remaining = intendedStart - System.nanoTime();
+                while (remaining > 0 && !run.stopped()) {
+                    if (remaining > SPIN_NANOS) {
+                        LockSupport.parkNanos(Math.min(remaining - SPIN_NANOS, MAX_PARK_NANOS));
+                    }
+                    remaining = intendedStart - System.nanoTime();
+                }
+                return !run.stopped();
+            }
+
+            /** Executes single invocation, latency is measured from intended start or from now when it is 0. */
+            private void invoke(final long intendedStart, final long[] snapshot) {
+                if (measurement != null) {
+                    measurement.begin(snapshot);
+                }
+                if (events != null) {
+                    events.started();
+                }
+                final boolean timed = measurement != null || events != null;
+                final long start = intendedStart == 0 && timed ? System.nanoTime() : intendedStart;
+                Throwable failure = null;
+                try {
+                    statement.evaluate();
+                } catch (final Throwable t) {
+                    failure = t;
+                    run.failed(index, t);
+                }
+                if (measurement != null) {
+                    measurement.end(snapshot, start, failure);
+                }
+                if (events != null) {
+                    events.finished(System.nanoTime() - start, failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wrapping statement that executes inner statement in parallel for given time on 1, 2, 4... up to maximum number of
+     * threads and fits {@link Scalability} model to throughput measured at each thread count.
+     */
+    static class ScalingSweepStatement extends Statement {
+        private static final double NANOS_PER_SECOND = 1e9;
+        private static final double PERCENT = 100;
+
+        private final int maxThreads;
+        private final long millisPerLevel;
+        private final Statement statement;
+        private final WorkerPool pool;
+        private final ExecutionMode mode;
+        private final Description description;
+        private final PrintStream reportStream;
+        private long warmupMillis;
+        private double minEfficiency;
+        private int efficiencyThreads;
+
+        ScalingSweepStatement(final int maxThreads, final long millisPerLevel, final Statement statement,
+                              final WorkerPool pool, final ExecutionMode mode, final Description description,
+                              final PrintStream reportStream) {
+            this.maxThreads = maxThreads;
+            this.millisPerLevel = millisPerLevel;
+            this.statement = statement;
+            this.pool = pool;
+            this.mode = mode;
+            this.description = description;
+            this.reportStream = reportStream;
+        }
+
+        ScalingSweepStatement withWarmup(final long millis) {
+            this.warmupMillis = millis;
+            return this;
+        }
+
+        ScalingSweepStatement withMinEfficiency(final double efficiency, final int threads) {
+            this.minEfficiency = efficiency;
+            this.efficiencyThreads = threads;
+            return this;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            final int checkedThreads = efficiencyThreads > 0 ? Math.min(efficiencyThreads, maxThreads) : maxThreads;
+            if (warmupMillis > 0) {
+                execute(maxThreads, warmupMillis);
+            }
+            final int[] threads = levels(maxThreads, checkedThreads);
+            final double[] throughput = new double[threads.length];
+            for (int i = 0; i < threads.length; i++) {
+                throughput[i] = execute(threads[i], millisPerLevel);
+            }
+            final Scalability scalability = new Scalability(threads, throughput);
+            if (reportStream != null) {
+                reportStream.println(String.format(Locale.ROOT, "%s: scaling sweep%n%s", description.getDisplayName(),
+                        scalability));
+            }
+            final double efficiency = scalability.getEfficiency(checkedThreads);
+            if (efficiency < minEfficiency) {
+                throw new AssertionError(String.format(Locale.ROOT,
+                        "Parallel efficiency %.1f%% at %d threads is below limit of %.1f%%", efficiency * PERCENT,
+                        checkedThreads, minEfficiency * PERCENT));
+            }
+        }
+
+        /** Executes the statement in parallel for given time and returns its throughput. */
+        private double execute(final int threads, final long millis) throws Throwable {
+            final Measurement measurement = new Measurement(threads);
+            final long start = System.nanoTime();
+            new ParallelStatement(threads, Long.MAX_VALUE, Parallel.DEFAULT_TIMEOUT_MS, statement, pool, mode,
+                    measurement).withDuration(millis).evaluate();
+            return measurement.getLatencies().getCount() * NANOS_PER_SECOND / Math.max(1, System.nanoTime() - start);
+        }
+
+        /** Returns powers of two below maximum, the maximum and the checked thread count, in ascending order. */
+        static int[] levels(final int max, final int checked) {
+            final SortedSet<Integer> levels = new TreeSet<Integer>();
+            for (int threads = 1; threads < max; threads *= 2) {
+                levels.add(threads);
+            }
+            levels.add(max);
+            levels.add(checked);
+            final int[] result = new int[levels.size()];
+            int i = 0;
+            for (final Integer threads : levels) {
+                result[i++] = threads;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Statement registering threads executing profiled test in its {@link StackSampler} and marking frames of the test
+     * on sampled stacks.
+     */
+    static class ProfiledStatement extends Statement {
+        private final Statement statement;
+        private volatile StackSampler sampler;
+
+        ProfiledStatement(final Statement statement) {
+            this.statement = statement;
+        }
+
+        void sampledBy(final StackSampler stackSampler) {
+            this.sampler = stackSampler;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            final StackSampler current = sampler;
+            if (current != null) {
+                current.register();
+            }
+            statement.evaluate();
+        }
+    }
+
+    /** Outermost wrapping statement sampling stacks of threads executing the test. */
+    static class ProfilingStatement extends Statement {
+        private final Statement statement;
+        private final ProfiledStatement profiled;
+        private final SamplingProfiler profiler;
+        private final Description description;
+
+        ProfilingStatement(final Statement statement, final ProfiledStatement profiled, final SamplingProfiler profiler,
+                           final Description description) {
+            this.statement = statement;
+            this.profiled = profiled;
+            this.profiler = profiler;
+            this.description = description;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            final StackSampler sampler = profiler.start(description);
+            profiled.sampledBy(sampler);
+            try {
+                statement.evaluate();
+            } finally {
+                profiled.sampledBy(null);
+                sampler.stop();
+            }
+        }
+    }
+
+    /**
+     * Outermost wrapping statement that measures whole test execution, reports collected measurements and checks them
+     * against performance limits.
+     */
+    static class MeasuredStatement extends Statement {
+        private static final double NANOS_PER_MILLI = 1e6;
+        private static final double NANOS_PER_MICRO = 1e3;
+        private static final double NANOS_PER_SECOND = 1e9;
+
+        private final Statement statement;
+        private final Measurement measurement;
+        private final Description description;
+        private final PrintStream reportStream;
+        private MaxLatency maxLatency;
+        private MinThroughput minThroughput;
+        private MaxAllocation maxAllocation;
+        private BaselineStore baselineStore;
+        private boolean benchmark;
+
+        MeasuredStatement(final Statement statement, final Measurement measurement, final Description description,
+                          final PrintStream reportStream) {
+            this.statement = statement;
+            this.measurement = measurement;
+            this.description = description;
+            this.reportStream = reportStream;
+        }
+
+        MeasuredStatement withLimits(final MaxLatency latencyLimit, final MinThroughput throughputLimit) {
+            this.maxLatency = latencyLimit;
+            this.minThroughput = throughputLimit;
+            return this;
+        }
+
+        MeasuredStatement withAllocationLimit(final MaxAllocation allocationLimit) {
+            this.maxAllocation = allocationLimit;
+            return this;
+        }
+
+        MeasuredStatement withBaseline(final BaselineStore store) {
+            this.baselineStore = store;
+            return this;
+        }
+
+        MeasuredStatement withBenchmark(final boolean enabled) {
+            this.benchmark = enabled;
+            return this;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            measurement.start();
+            final long start = System.nanoTime();
+            final long elapsedNanos;
+            try {
+                statement.evaluate();
+            } finally {
+                elapsedNanos = measurement.measuredNanos(start, System.nanoTime());
+                measurement.stop();
+                report(elapsedNanos);
+            }
+            checkLimits(elapsedNanos);
+        }
+
+        private void report(final long elapsedNanos) {
+            if (reportStream == null) {
+                return;
+            }
+            final LatencyHistogram latencies = measurement.getLatencies();
+            reportStream.println(String.format(Locale.ROOT, "%s: %d invocations in %.3fms (%.1f ops/s), latency %s",
+                    description.getDisplayName(), latencies.getCount(), elapsedNanos / NANOS_PER_MILLI,
+                    throughput(latencies, elapsedNanos), latencies));
+            if (benchmark) {
+                reportStream.println(String.format(Locale.ROOT,
+                        "%s: benchmark %.3f \u00b1 %.3f us/op (99.9%%), %.1f ops/s after %d warm-up invocations%s",
+                        description.getDisplayName(), latencies.getMean() / NANOS_PER_MICRO,
+                        latencies.getMeanError() / NANOS_PER_MICRO, throughput(latencies, elapsedNanos),
+                        measurement.getWarmupInvocations(), measurement.getUnsteadyThreads() == 0 ? ""
+                                : ", steady state not reached in warm-up time"));
+            }
+            if (measurement.getStartSkew() >= 0) {
+                reportStream.println(String.format(Locale.ROOT, "%s: start skew %.3fus", description.getDisplayName(),
+                        measurement.getStartSkew() / NANOS_PER_MICRO));
             }
-            executor.shutdown();
-            if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
-                throw new TimeoutException("Not all parallel tests finished in given timeout.");
+            if (measurement.getResources() != null) {
+                reportStream.println(String.format(Locale.ROOT, "%s: resources %s", description.getDisplayName(),
+                        measurement.getResources()));
             }
-            for (final Future<Throwable> result : results) {
-                if (result.get() != null) {
-                    throw result.get();
+            if (measurement.getGcMonitor() != null) {
+                reportStream.println(String.format(Locale.ROOT, "%s: %s", description.getDisplayName(),
+                        measurement.getGcMonitor()));
+            }
+        }
+
+        private void checkLimits(final long elapsedNanos) {
+            final LatencyHistogram latencies = measurement.getLatencies();
+            if (maxLatency != null) {
+                final long latency = latencies.getValueAtPercentile(maxLatency.percentile());
+                if (latency > maxLatency.micros() * NANOS_PER_MICRO) {
+                    throw new AssertionError(String.format(Locale.ROOT,
+                            "p%s latency %.3fus exceeds limit of %dus", maxLatency.percentile(),
+                            latency / NANOS_PER_MICRO, maxLatency.micros()));
                 }
             }
+            if (minThroughput != null) {
+                final double throughput = throughput(latencies, elapsedNanos);
+                if (throughput < minThroughput.opsPerSecond()) {
+                    throw new AssertionError(String.format(Locale.ROOT,
+                            "Throughput %.1f ops/s is below limit of %.1f ops/s", throughput,
+                            minThroughput.opsPerSecond()));
+                }
+            }
+            if (maxAllocation != null) {
+                checkAllocation(measurement.getResources());
+            }
+            if (baselineStore != null && latencies.getCount() > 0) {
+                baselineStore.check(description, latencies, throughput(latencies, elapsedNanos));
+            }
+        }
+
+        private void checkAllocation(final ResourceUsage resources) {
+            if (!ResourceUsage.isAllocationSupported()) {
+                throw new AssumptionViolatedException("Allocated memory cannot be measured in this JVM");
+            }
+            if (resources.getInvocations() == 0) {
+                throw new AssertionError("No invocations measured after " + maxAllocation.warmup()
+                        + " warm-up invocations");
+            }
+            final double allocated = (double) resources.getAllocatedBytes() / resources.getInvocations();
+            if (allocated > maxAllocation.bytesPerInvocation()) {
+                throw new AssertionError(String.format(Locale.ROOT,
+                        "Allocated %.1f bytes per invocation exceeds limit of %d bytes", allocated,
+                        maxAllocation.bytesPerInvocation()));
+            }
+        }
+
+        private static double throughput(final LatencyHistogram latencies, final long elapsedNanos) {
+            return latencies.getCount() * NANOS_PER_SECOND / Math.max(1, elapsedNanos);
         }
     }
 }
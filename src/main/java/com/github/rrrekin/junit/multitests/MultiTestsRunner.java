@@ -0,0 +1,124 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * JUnit 4 runner executing test methods of a class annotated with @{@link Parallel} concurrently. The class-level
+ * annotation sets only the maximum number of concurrently running methods ({@link Parallel#threads()} or
+ * {@link Parallel#value()}), methods are executed on threads of the shared {@link WorkerPool}. Without the class-level
+ * annotation methods are executed sequentially, as with the default runner.
+ *
+ * <p>Every method is executed with its own rules, so method-level @{@link Parallel}, @{@link Repeat} and
+ * @{@link Retry} handled by {@link MultiTestsRule} work as usual. Methods annotated with @{@link Isolated} are not
+ * executed concurrently with any other method of the class.</p>
+ *
+ * <pre>
+ *     &#64;RunWith(MultiTestsRunner.class)
+ *     &#64;Parallel(4)
+ *     public class IntegrationTest {
+ *         ...
+ *     }
+ * </pre>
+ *
+ * <p>Test instances are created per method as usual, but static fields and fixtures set up by
+ * {@code @BeforeClass} are shared by concurrently running methods, so they have to be thread-safe.</p>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public class MultiTestsRunner extends BlockJUnit4ClassRunner {
+
+    /** Held for reading by concurrent methods and for writing by isolated ones. */
+    private final ReadWriteLock isolation = new ReentrantReadWriteLock(true);
+
+    /**
+     * Creates runner of given test class.
+     *
+     * @param testClass test class
+     * @throws InitializationError when the test class is malformed
+     */
+    public MultiTestsRunner(final Class<?> testClass) throws InitializationError {
+        super(testClass);
+        final Parallel parallel = testClass.getAnnotation(Parallel.class);
+        if (parallel != null) {
+            final int threads = parallel.threads() > 0 ? parallel.threads() : parallel.value();
+            setScheduler(new ConcurrentScheduler(threads, WorkerPool.shared()));
+        }
+    }
+
+    @Override
+    protected void runChild(final FrameworkMethod method, final RunNotifier notifier) {
+        final Lock lock = method.getAnnotation(Isolated.class) == null ? isolation.readLock() : isolation.writeLock();
+        lock.lock();
+        try {
+            super.runChild(method, notifier);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Scheduler executing at most given number of methods at once on worker pool threads. */
+    private static final class ConcurrentScheduler implements RunnerScheduler {
+        private final int threads;
+        private final WorkerPool pool;
+        private final Semaphore running;
+
+        ConcurrentScheduler(final int threads, final WorkerPool pool) {
+            this.threads = threads;
+            this.pool = pool;
+            this.running = new Semaphore(threads);
+        }
+
+        @Override
+        public void schedule(final Runnable childStatement) {
+            running.acquireUninterruptibly();
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        childStatement.run();
+                    } finally {
+                        running.release();
+                    }
+                }
+            };
+            try {
+                pool.execute(task);
+            } catch (final RejectedExecutionException ex) {
+                // all pool threads are busy, execute the method in the calling thread
+                task.run();
+            }
+        }
+
+        @Override
+        public void finished() {
+            running.acquireUninterruptibly(threads);
+            running.release(threads);
+        }
+    }
+}
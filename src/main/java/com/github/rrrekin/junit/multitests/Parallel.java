@@ -21,23 +21,66 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
 
 /**
  * Indicates that the test should be executed multiple times (default 10) in parallel, all executions have to succeed in
  * given timeout, default 10000ms. Used by the MultiTestsRule.
  *
+ * <p>Number of executions can be bigger than number of threads, e.g. {@code @Parallel(invocations = 1000000,
+ * threads = 16)} executes the test million times on 16 threads.</p>
+ *
+ * <p>On a test class executed by {@link MultiTestsRunner} the annotation makes test methods of the class run
+ * concurrently, only the number of threads is used then.</p>
+ *
  * @author Michal Rudewicz <michal.rudewicz@gmail.com>
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({METHOD})
+@Target({METHOD, TYPE})
 public @interface Parallel {
 
     int DEFAULT_THREAD_COUNT = 10;
     int DEFAULT_TIMEOUT_MS = 10000;
 
-    /** Number of parallel execution threads. */
+    /** Number of parallel execution threads, also number of executions when not set by {@link #invocations()}. */
     int value() default DEFAULT_THREAD_COUNT;
 
-    /** Thread execution timeout in milliseconds. */
+    /** Number of parallel execution threads, overrides {@link #value()} when set. */
+    int threads() default 0;
+
+    /** Total number of test executions distributed among the threads, by default one execution per thread. */
+    long invocations() default 0;
+
+    /**
+     * Thread execution timeout in milliseconds, counted from the end of {@link #forMillis()} time budget if set. Time
+     * budget and warm-up of nested {@link Repeat} extend it for every execution a thread makes.
+     */
     long timeout() default DEFAULT_TIMEOUT_MS;
+
+    /**
+     * Time budget in milliseconds, when set all threads keep executing the test until the time elapses (or number of
+     * {@link #invocations()}, if set, is reached). Number of executions and their rate are reported after the test.
+     */
+    long forMillis() default 0;
+
+    /**
+     * When set, the first failure interrupts all other threads, cancels remaining executions and fails the test
+     * immediately.
+     */
+    boolean failFast() default false;
+
+    /**
+     * When set together with @{@link Repeat}, threads wait for each other before every repetition, so all repetitions
+     * (not only the first one) are started by all threads at the same time. Requires single invocation per thread.
+     */
+    boolean lockstep() default false;
+
+    /**
+     * When set, threads wait for each other at start spinning instead of parking, so they start the test within a few
+     * microseconds of each other. Requires a free processor for every thread. Observed start skew is reported.
+     */
+    boolean spinStart() default false;
+
+    /** Kind of threads executing the test, by default the one configured in the rule. */
+    ExecutionMode mode() default ExecutionMode.DEFAULT;
 }
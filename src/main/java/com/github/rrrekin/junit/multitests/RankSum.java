@@ -0,0 +1,109 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+/**
+ * One-sided Mann-Whitney U test (Wilcoxon rank-sum test) comparing two latency histograms. Values in the same bucket
+ * are treated as ties, so the test works on bucketed distributions without keeping raw samples. The normal
+ * approximation with tie and continuity corrections is used, which is accurate for the sample sizes of repeated and
+ * parallel tests.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class RankSum {
+
+    private static final double HALF = 0.5;
+    private static final double VARIANCE_DIVISOR = 12;
+    private static final double SQRT_2 = Math.sqrt(2);
+    // Abramowitz & Stegun 7.1.26 approximation of erfc, absolute error below 1.5e-7
+    private static final double ERF_P = 0.3275911;
+    private static final double[] ERF_A = {0.254829592, -0.284496736, 1.421413741, -1.453152027, 1.061405429};
+
+    /** Probability that value from the current sample is greater than one from the baseline sample. */
+    private final double superiority;
+    /** P-value of the hypothesis that current values are not greater than baseline ones. */
+    private final double pValue;
+
+    /**
+     * Compares two samples.
+     *
+     * @param baseline baseline latencies
+     * @param current  current latencies
+     */
+    RankSum(final LatencyHistogram baseline, final LatencyHistogram current) {
+        final double n1 = baseline.getCount();
+        final double n2 = current.getCount();
+        final double total = n1 + n2;
+        double u = 0;
+        double baselineBelow = 0;
+        double ties = 0;
+        for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+            final double inBaseline = baseline.getCountAt(i);
+            final double inCurrent = current.getCountAt(i);
+            u += inCurrent * (baselineBelow + HALF * inBaseline);
+            baselineBelow += inBaseline;
+            final double tied = inBaseline + inCurrent;
+            ties += tied * tied * tied - tied;
+        }
+        if (n1 == 0 || n2 == 0) {
+            superiority = HALF;
+            pValue = 1;
+            return;
+        }
+        superiority = u / (n1 * n2);
+        final double mean = n1 * n2 / 2;
+        final double variance = n1 * n2 / VARIANCE_DIVISOR * (total + 1 - ties / (total * (total - 1)));
+        if (variance <= 0) {
+            // all values tied
+            pValue = 1;
+        } else {
+            pValue = upperTail((u - mean - HALF) / Math.sqrt(variance));
+        }
+    }
+
+    /**
+     * Returns Vargha-Delaney A effect size: probability that current latency is greater than baseline one, ties
+     * counted as half. Value 0.5 means no difference, values above 0.56, 0.64 and 0.71 mean respectively small, medium
+     * and large slowdown.
+     *
+     * @return effect size from 0 to 1
+     */
+    double getSuperiority() {
+        return superiority;
+    }
+
+    /**
+     * Returns probability of observing such or bigger difference when current latencies are not greater than baseline.
+     *
+     * @return one-sided p-value
+     */
+    double getPValue() {
+        return pValue;
+    }
+
+    /** Returns probability that standard normal variable is greater than given value. */
+    static double upperTail(final double z) {
+        final double x = Math.abs(z) / SQRT_2;
+        final double t = 1 / (1 + ERF_P * x);
+        double polynomial = 0;
+        for (int i = ERF_A.length - 1; i >= 0; i--) {
+            polynomial = (polynomial + ERF_A[i]) * t;
+        }
+        final double erfc = polynomial * Math.exp(-x * x);
+        return z >= 0 ? erfc / 2 : 1 - erfc / 2;
+    }
+}
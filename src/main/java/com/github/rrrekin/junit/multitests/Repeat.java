@@ -23,8 +23,8 @@ import java.lang.annotation.Target;
 import static java.lang.annotation.ElementType.METHOD;
 
 /**
- * Indicates that the test should be executed multiple times (default 10) all executions have to succeed.
- * Used by the MultiTestsRule.
+ * Indicates that the test should be executed multiple times (default 10) or for given time, all executions have to
+ * succeed. Used by the MultiTestsRule.
  *
  * @author Michal Rudewicz <michal.rudewicz@gmail.com>
  */
@@ -34,6 +34,27 @@ public @interface Repeat {
 
     int DEFAULT_REPETITION_COUNT = 10;
 
-    /** Number of test repetitions. */
+    /** Number of test repetitions, measured ones when warm-up is set. */
     int value() default DEFAULT_REPETITION_COUNT;
+
+    /**
+     * Time budget in milliseconds, when set the test is repeated until the time elapses instead of given number of
+     * times. Number of repetitions and their rate are reported after the test.
+     */
+    long forMillis() default 0;
+
+    /**
+     * Number of warm-up repetitions executed before the measured ones (by every thread of parallel test), so the
+     * measured code is already compiled. Warm-up repetitions are neither measured nor checked against performance
+     * limits, but their failures fail the test. When set, the test is reported as a benchmark: mean latency with its
+     * 99.9% confidence interval and throughput of measured repetitions.
+     */
+    int warmup() default 0;
+
+    /**
+     * Maximum duration of adaptive warm-up in milliseconds, executed after {@link #warmup()} repetitions. When set,
+     * warm-up continues until JIT compiler stops compiling and latency of recent repetitions stabilizes, or until the
+     * time elapses. Like {@link #warmup()}, makes the test reported as a benchmark.
+     */
+    long warmupMillis() default 0;
 }
@@ -0,0 +1,247 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resources used by test invocations: CPU time, number and time of blocking on monitors and of waiting, and allocated
+ * memory of the thread executing the invocation. Values are read from {@link ThreadMXBean} before and after every
+ * invocation and differences are summed for whole test. Allocated memory is available only with HotSpot compatible
+ * {@code com.sun.management.ThreadMXBean}; values not supported by the JVM, or not available for virtual threads, are
+ * reported as 0.
+ *
+ * <p>CPU time measurement, thread contention monitoring and allocated memory measurement are enabled in the JVM when
+ * the first instance is created. Optionally given number of first invocations is treated as warm-up and not
+ * counted.</p>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class ResourceUsage {
+
+    /** Size of array keeping values read before invocation. */
+    static final int SNAPSHOT_SIZE = 6;
+
+    private static final int CPU_NANOS = 0;
+    private static final int BLOCKED_COUNT = 1;
+    private static final int BLOCKED_MILLIS = 2;
+    private static final int WAITED_COUNT = 3;
+    private static final int WAITED_MILLIS = 4;
+    private static final int ALLOCATED_BYTES = 5;
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationsBean();
+
+    private final long warmup;
+    /** Number of finished invocations, including warm-up ones. */
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong[] totals = new AtomicLong[SNAPSHOT_SIZE];
+
+    /** Creates empty usage and enables resource measurements in the JVM. */
+    ResourceUsage() {
+        this(0);
+    }
+
+    /**
+     * Creates empty usage and enables resource measurements in the JVM.
+     *
+     * @param warmup number of first invocations not counted
+     */
+    ResourceUsage(final long warmup) {
+        this.warmup = warmup;
+        for (int i = 0; i < SNAPSHOT_SIZE; i++) {
+            totals[i] = new AtomicLong();
+        }
+        enableMeasurements();
+    }
+
+    /**
+     * Returns whether memory allocated by threads can be measured in this JVM.
+     *
+     * @return {@code true} when allocated bytes are measured
+     */
+    static boolean isAllocationSupported() {
+        return ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Reads resource usage of current thread before invocation.
+     *
+     * @param snapshot array of at least {@link #SNAPSHOT_SIZE} elements
+     */
+    void begin(final long[] snapshot) {
+        final long threadId = Thread.currentThread().getId();
+        final ThreadInfo info = THREADS.getThreadInfo(threadId, 0);
+        if (info != null) {
+            snapshot[BLOCKED_COUNT] = info.getBlockedCount();
+            snapshot[BLOCKED_MILLIS] = info.getBlockedTime();
+            snapshot[WAITED_COUNT] = info.getWaitedCount();
+            snapshot[WAITED_MILLIS] = info.getWaitedTime();
+        }
+        snapshot[CPU_NANOS] = cpuNanos();
+        // read as the last one, so reading other values is not counted
+        snapshot[ALLOCATED_BYTES] = allocatedBytes(threadId);
+    }
+
+    /**
+     * Reads resource usage of current thread after invocation and adds the difference to the totals.
+     *
+     * @param snapshot array filled by {@link #begin(long[])}
+     */
+    void end(final long[] snapshot) {
+        final long threadId = Thread.currentThread().getId();
+        // read as the first one, so reading other values is not counted
+        final long allocatedBytes = allocatedBytes(threadId);
+        if (finished.incrementAndGet() <= warmup) {
+            return;
+        }
+        add(ALLOCATED_BYTES, allocatedBytes, snapshot);
+        add(CPU_NANOS, cpuNanos(), snapshot);
+        final ThreadInfo info = THREADS.getThreadInfo(threadId, 0);
+        if (info != null) {
+            add(BLOCKED_COUNT, info.getBlockedCount(), snapshot);
+            add(BLOCKED_MILLIS, info.getBlockedTime(), snapshot);
+            add(WAITED_COUNT, info.getWaitedCount(), snapshot);
+            add(WAITED_MILLIS, info.getWaitedTime(), snapshot);
+        }
+        invocations.incrementAndGet();
+    }
+
+    /**
+     * Returns number of measured invocations.
+     *
+     * @return invocation count, without warm-up ones
+     */
+    long getInvocations() {
+        return invocations.get();
+    }
+
+    /**
+     * Returns CPU time used by all invocations.
+     *
+     * @return CPU time in nanoseconds
+     */
+    long getCpuNanos() {
+        return totals[CPU_NANOS].get();
+    }
+
+    /**
+     * Returns number of times invocations blocked to enter or reenter a monitor.
+     *
+     * @return blocked count
+     */
+    long getBlockedCount() {
+        return totals[BLOCKED_COUNT].get();
+    }
+
+    /**
+     * Returns time invocations were blocked to enter or reenter a monitor.
+     *
+     * @return blocked time in milliseconds
+     */
+    long getBlockedMillis() {
+        return totals[BLOCKED_MILLIS].get();
+    }
+
+    /**
+     * Returns number of times invocations waited for notification, including parking and sleeping.
+     *
+     * @return waited count
+     */
+    long getWaitedCount() {
+        return totals[WAITED_COUNT].get();
+    }
+
+    /**
+     * Returns time invocations waited for notification, including parking and sleeping.
+     *
+     * @return waited time in milliseconds
+     */
+    long getWaitedMillis() {
+        return totals[WAITED_MILLIS].get();
+    }
+
+    /**
+     * Returns memory allocated by all invocations.
+     *
+     * @return allocated bytes
+     */
+    long getAllocatedBytes() {
+        return totals[ALLOCATED_BYTES].get();
+    }
+
+    @Override
+    public String toString() {
+        final long count = Math.max(1, getInvocations());
+        return String.format(Locale.ROOT,
+                "cpu %.3fms (%.3fus/op), blocked %d times for %dms, waited %d times for %dms, allocated %d B (%.1f B/op)",
+                getCpuNanos() / NANOS_PER_MILLI, getCpuNanos() / NANOS_PER_MICRO / count, getBlockedCount(),
+                getBlockedMillis(), getWaitedCount(), getWaitedMillis(), getAllocatedBytes(),
+                (double) getAllocatedBytes() / count);
+    }
+
+    private void add(final int index, final long value, final long[] snapshot) {
+        // unsupported values are negative
+        if (value >= 0 && snapshot[index] >= 0) {
+            totals[index].addAndGet(value - snapshot[index]);
+        }
+    }
+
+    private static long cpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes(final long threadId) {
+        return ALLOCATIONS == null ? -1 : ALLOCATIONS.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationsBean() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    ? (com.sun.management.ThreadMXBean) THREADS : null;
+        } catch (final LinkageError ex) {
+            // not HotSpot compatible JVM
+            return null;
+        }
+    }
+
+    private static void enableMeasurements() {
+        try {
+            if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+                THREADS.setThreadCpuTimeEnabled(true);
+            }
+            if (THREADS.isThreadContentionMonitoringSupported() && !THREADS.isThreadContentionMonitoringEnabled()) {
+                THREADS.setThreadContentionMonitoringEnabled(true);
+            }
+            if (ALLOCATIONS != null && !ALLOCATIONS.isThreadAllocatedMemoryEnabled()) {
+                ALLOCATIONS.setThreadAllocatedMemoryEnabled(true);
+            }
+        } catch (final SecurityException ex) {
+            // measurements not permitted, not enabled values are reported as 0
+            return;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads files written by {@link ResultSink} and exports them to CSV or JSON for offline analysis. Can be also used from
+ * command line:
+ *
+ * <pre>
+ *     java -cp multitests-junit4.jar com.github.rrrekin.junit.multitests.ResultReader build/multitests.bin json
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class ResultReader {
+
+    private static final String[] OUTCOMES = {"success", "failure", "error", "skipped"};
+    private static final String UTF_8 = "UTF-8";
+    private static final int HEX_CHARS = 4;
+
+    private final File file;
+    private final List<String> testNames = new ArrayList<String>();
+    private final long createdMillis;
+    private final long recordCount;
+
+    /**
+     * Opens result file and reads its header and test names.
+     *
+     * @param file file written by {@link ResultSink}
+     * @throws IOException when the file cannot be read or has invalid format
+     */
+    public ResultReader(final File file) throws IOException {
+        this.file = file;
+        final DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            if (input.readInt() != ResultSink.MAGIC || input.readInt() != ResultSink.RECORD_SIZE) {
+                throw new IOException("Not a multitests result file: " + file);
+            }
+            createdMillis = input.readLong();
+            recordCount = input.readLong();
+        } finally {
+            input.close();
+        }
+        final BufferedReader names = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file.getPath() + ResultSink.NAMES_SUFFIX), UTF_8));
+        try {
+            String name = names.readLine();
+            while (name != null) {
+                testNames.add(name);
+                name = names.readLine();
+            }
+        } finally {
+            names.close();
+        }
+    }
+
+    /**
+     * Exports result file to standard output.
+     *
+     * @param args result file and optional format: {@code csv} (default) or {@code json}
+     * @throws IOException when the file cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ResultReader <result file> [csv|json]");
+            return;
+        }
+        final ResultReader reader = new ResultReader(new File(args[0]));
+        final Writer output = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+        if (args.length > 1 && "json".equalsIgnoreCase(args[1])) {
+            reader.exportJson(output);
+        } else {
+            reader.exportCsv(output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Returns names of tests, index in the list is the test id.
+     *
+     * @return test display names
+     */
+    public List<String> getTestNames() {
+        return testNames;
+    }
+
+    /**
+     * Returns time the file was created.
+     *
+     * @return creation time in milliseconds since epoch
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Returns number of records in the file.
+     *
+     * @return record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes all records as CSV with header line. Start times are in nanoseconds since the sink was created.
+     *
+     * @param output CSV output
+     * @throws IOException when the file cannot be read or output written
+     */
+    public void exportCsv(final Writer output) throws IOException {
+        output.write("test,thread,iteration,startNanos,durationNanos,outcome\n");
+        export(output, true);
+    }
+
+    /**
+     * Writes all records as JSON object with creation time, test names and array of records. Start times are in
+     * nanoseconds since the sink was created.
+     *
+     * @param output JSON output
+     * @throws IOException when the file cannot be read or output written
+     */
+    public void exportJson(final Writer output) throws IOException {
+        output.write("{\"createdMillis\":" + createdMillis + ",\"tests\":[");
+        for (int i = 0; i < testNames.size(); i++) {
+            output.write((i == 0 ? "" : ",") + jsonString(testNames.get(i)));
+        }
+        output.write("],\"records\":[");
+        export(output, false);
+        output.write("\n]}\n");
+    }
+
+    private void export(final Writer output, final boolean csv) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            skip(input, ResultSink.HEADER_SIZE);
+            for (long i = 0; i < recordCount; i++) {
+                final int test = input.readInt();
+                final int thread = input.readInt();
+                final long iteration = input.readLong();
+                final long start = input.readLong();
+                final long duration = input.readLong();
+                final int outcome = input.readInt();
+                skip(input, ResultSink.RECORD_PADDING);
+                if (csv) {
+                    output.write(csvString(testName(test)) + ',' + thread + ',' + iteration + ',' + start + ','
+                            + duration + ',' + outcomeName(outcome) + '\n');
+                } else {
+                    output.write((i == 0 ? "\n" : ",\n") + "{\"test\":" + test + ",\"thread\":" + thread
+                            + ",\"iteration\":" + iteration + ",\"startNanos\":" + start + ",\"durationNanos\":"
+                            + duration + ",\"outcome\":\"" + outcomeName(outcome) + "\"}");
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private String testName(final int test) {
+        return test >= 0 && test < testNames.size() ? testNames.get(test) : String.valueOf(test);
+    }
+
+    private static String outcomeName(final int outcome) {
+        return outcome >= 0 && outcome < OUTCOMES.length ? OUTCOMES[outcome] : String.valueOf(outcome);
+    }
+
+    private static void skip(final DataInputStream input, final int bytes) throws IOException {
+        input.readFully(new byte[bytes]);
+    }
+
+    private static String csvString(final String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(final String value) {
+        final StringBuilder result = new StringBuilder().append('"');
+        for (final char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format(Locale.ROOT, "\\u%0" + HEX_CHARS + "x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+}
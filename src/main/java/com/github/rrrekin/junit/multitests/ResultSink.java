@@ -0,0 +1,250 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a fixed-width binary record of every measured test invocation to a memory-mapped file, so results of runs
+ * with millions of invocations are not kept in memory. Record contains test id, thread index, iteration, start time,
+ * duration and outcome, writing it does not allocate memory (except when next region of the file is mapped). Display
+ * names of tests are written to a text file with the {@value #NAMES_SUFFIX} suffix, test id is the line number.
+ * Files can be exported to CSV or JSON with {@link ResultReader}.
+ *
+ * <p>Sink is passed to the rule and should be declared as a class rule, so it is closed when all tests of the class
+ * are finished:</p>
+ *
+ * <pre>
+ *     &#64;ClassRule public static ResultSink sink = ResultSink.create(new File("build/multitests.bin"));
+ *     &#64;Rule public MultiTestsRule multiTests = new MultiTestsRule().withResultSink(sink);
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class ResultSink implements TestRule, Closeable {
+
+    /** Suffix of file with test names. */
+    public static final String NAMES_SUFFIX = ".names";
+
+    /** Successful invocation. */
+    public static final int SUCCESS = 0;
+    /** Invocation failed with {@link AssertionError}. */
+    public static final int FAILURE = 1;
+    /** Invocation failed with other exception. */
+    public static final int ERROR = 2;
+    /** Invocation failed assumption. */
+    public static final int SKIPPED = 3;
+
+    /** File format identifier: "MTRS". */
+    static final int MAGIC = 0x4D545253;
+    /** Header: magic, record size, creation time in epoch millis, record count. */
+    static final int HEADER_SIZE = 24;
+    static final int COUNT_OFFSET = 16;
+    /** Record: test id, thread index, iteration, start nanos, duration nanos, outcome, padding. */
+    static final int RECORD_SIZE = 40;
+    static final int RECORD_PADDING = 4;
+
+    private static final int THREAD_OFFSET = 4;
+    private static final int ITERATION_OFFSET = 8;
+    private static final int START_OFFSET = 16;
+    private static final int DURATION_OFFSET = 24;
+    private static final int OUTCOME_OFFSET = 32;
+    /** Number of records in single mapped region of the file. */
+    private static final int SEGMENT_RECORDS = 65536;
+    private static final long SEGMENT_SIZE = (long) SEGMENT_RECORDS * RECORD_SIZE;
+    private static final String UTF_8 = "UTF-8";
+
+    private final File file;
+    private final RandomAccessFile data;
+    private final Writer names;
+    /** Value of {@link System#nanoTime()} written as start time 0. */
+    private final long originNanos = System.nanoTime();
+    private final AtomicInteger tests = new AtomicInteger();
+    private final AtomicLong records = new AtomicLong();
+    /** Mapped regions of the file, replaced by bigger copy when new region is mapped. */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile boolean closed;
+
+    private ResultSink(final File file) throws IOException {
+        this.file = file;
+        this.data = new RandomAccessFile(file, "rw");
+        this.names = new OutputStreamWriter(new FileOutputStream(file.getPath() + NAMES_SUFFIX), UTF_8);
+        data.setLength(0);
+        data.writeInt(MAGIC);
+        data.writeInt(RECORD_SIZE);
+        data.writeLong(System.currentTimeMillis());
+        data.writeLong(0);
+    }
+
+    /**
+     * Creates sink writing to given file, existing file is overwritten.
+     *
+     * @param file result file, test names are written next to it to file with {@value #NAMES_SUFFIX} suffix
+     * @return new sink
+     * @throws IOException when the file cannot be created
+     */
+    public static ResultSink create(final File file) throws IOException {
+        return new ResultSink(file);
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    base.evaluate();
+                } finally {
+                    close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the result file.
+     *
+     * @return file records are written to
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns number of written records.
+     *
+     * @return record count
+     */
+    public long getRecordCount() {
+        return records.get();
+    }
+
+    /**
+     * Writes number of records to the file header and closes the files. Records written after closing are dropped.
+     *
+     * @throws IOException when the files cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (final MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        try {
+            data.seek(COUNT_OFFSET);
+            data.writeLong(Math.min(records.get(), (long) segments.length * SEGMENT_RECORDS));
+        } finally {
+            data.close();
+            names.close();
+        }
+    }
+
+    /**
+     * Assigns id to a test.
+     *
+     * @param testName test display name
+     * @return test id used in records
+     * @throws IOException when the name cannot be written
+     */
+    synchronized int register(final String testName) throws IOException {
+        names.write(testName.replace('\n', ' '));
+        names.write('\n');
+        names.flush();
+        return tests.getAndIncrement();
+    }
+
+    /**
+     * Writes record of single invocation.
+     *
+     * @param testId        test id
+     * @param thread        index of thread executing the invocation
+     * @param iteration     index of the invocation in the thread
+     * @param startNanos    invocation start as returned by {@link System#nanoTime()}
+     * @param durationNanos invocation duration
+     * @param failure       invocation failure, {@code null} on success
+     */
+    void write(final int testId, final int thread, final long iteration, final long startNanos,
+               final long durationNanos, final Throwable failure) {
+        final long record = records.getAndIncrement();
+        final MappedByteBuffer segment = segment((int) (record / SEGMENT_RECORDS));
+        if (segment == null) {
+            return;
+        }
+        final int offset = (int) (record % SEGMENT_RECORDS) * RECORD_SIZE;
+        segment.putInt(offset, testId);
+        segment.putInt(offset + THREAD_OFFSET, thread);
+        segment.putLong(offset + ITERATION_OFFSET, iteration);
+        segment.putLong(offset + START_OFFSET, startNanos - originNanos);
+        segment.putLong(offset + DURATION_OFFSET, durationNanos);
+        segment.putInt(offset + OUTCOME_OFFSET, outcomeOf(failure));
+    }
+
+    static int outcomeOf(final Throwable failure) {
+        if (failure == null) {
+            return SUCCESS;
+        } else if (failure instanceof AssumptionViolatedException) {
+            return SKIPPED;
+        } else if (failure instanceof AssertionError) {
+            return FAILURE;
+        }
+        return ERROR;
+    }
+
+    private MappedByteBuffer segment(final int index) {
+        final MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        return map(index);
+    }
+
+    private synchronized MappedByteBuffer map(final int index) {
+        if (closed) {
+            return null;
+        }
+        try {
+            while (segments.length <= index) {
+                final MappedByteBuffer[] extended = new MappedByteBuffer[segments.length + 1];
+                System.arraycopy(segments, 0, extended, 0, segments.length);
+                extended[segments.length] = data.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + segments.length * SEGMENT_SIZE, SEGMENT_SIZE);
+                segments = extended;
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Cannot map result file " + file, ex);
+        }
+        return segments[index];
+    }
+}
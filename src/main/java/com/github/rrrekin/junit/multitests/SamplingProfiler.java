@@ -0,0 +1,124 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.runner.Description;
+
+import java.io.File;
+
+/**
+ * Sampling profiler of repeated and parallel tests. While such test runs, stack traces of threads executing it are
+ * sampled at given interval and aggregated in collapsed-stack format (one line per distinct stack: frames from the
+ * test statement to the top separated by semicolons, followed by the sample count), ready for flame graph tools. Lock
+ * a blocked or waiting thread waits for is added as the top frame, so lock contention sites are visible. Samples of
+ * every test are written to a separate file named after the test class and method, with {@value #SUFFIX} suffix.
+ *
+ * <p>Memory is bounded: stacks are truncated to {@link #withMaxDepth(int) maximum depth} and samples of stacks beyond
+ * {@link #withMaxStacks(int) maximum number of distinct stacks} are counted together as {@value #OTHER_STACKS}. Test
+ * threads are not instrumented, they are only registered on their first execution of the test and the profiler thread
+ * takes a dump of registered threads at every interval, so concurrently running tests are not mixed up.</p>
+ *
+ * <pre>
+ *     &#64;Rule public MultiTestsRule multiTests = new MultiTestsRule()
+ *             .withProfiler(new SamplingProfiler(new File("build/profiles")).withInterval(5));
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class SamplingProfiler {
+
+    /** Suffix of written files. */
+    public static final String SUFFIX = ".collapsed";
+    /** Stack counting samples of all stacks above the limit of distinct stacks. */
+    public static final String OTHER_STACKS = "[other stacks]";
+    public static final long DEFAULT_INTERVAL_MS = 10;
+    public static final int DEFAULT_MAX_STACKS = 10000;
+    public static final int DEFAULT_MAX_DEPTH = 128;
+
+    private final File directory;
+    private long intervalMillis = DEFAULT_INTERVAL_MS;
+    private int maxStacks = DEFAULT_MAX_STACKS;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    /**
+     * Creates profiler writing to given directory.
+     *
+     * @param directory output directory, created when needed
+     */
+    public SamplingProfiler(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets sampling interval.
+     *
+     * @param millis time between samples in milliseconds, {@value #DEFAULT_INTERVAL_MS} by default
+     * @return this profiler
+     */
+    public SamplingProfiler withInterval(final long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("Sampling interval has to be positive");
+        }
+        this.intervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets maximum number of distinct stacks kept per test.
+     *
+     * @param stacks stack count, {@value #DEFAULT_MAX_STACKS} by default
+     * @return this profiler
+     */
+    public SamplingProfiler withMaxStacks(final int stacks) {
+        this.maxStacks = stacks;
+        return this;
+    }
+
+    /**
+     * Sets maximum number of frames of a stack, the frames closest to the test statement are kept.
+     *
+     * @param frames frame count, {@value #DEFAULT_MAX_DEPTH} by default
+     * @return this profiler
+     */
+    public SamplingProfiler withMaxDepth(final int frames) {
+        this.maxDepth = frames;
+        return this;
+    }
+
+    /**
+     * Returns file samples of given test are written to.
+     *
+     * @param description test description
+     * @return output file
+     */
+    public File fileFor(final Description description) {
+        final String name = description.getClassName() + '.' + description.getMethodName();
+        return new File(directory, name.replaceAll("[^A-Za-z0-9._$-]", "_") + SUFFIX);
+    }
+
+    /**
+     * Starts sampling threads executing the test.
+     *
+     * @param description test description
+     * @return running sampler
+     */
+    StackSampler start(final Description description) {
+        final StackSampler sampler = new StackSampler(fileFor(description), intervalMillis, maxStacks, maxDepth);
+        sampler.start();
+        return sampler;
+    }
+}
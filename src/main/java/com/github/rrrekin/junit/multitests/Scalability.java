@@ -0,0 +1,133 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.Locale;
+
+/**
+ * Universal Scalability Law fitted to throughput measured at several thread counts. The law models relative capacity
+ * {@code C(N) = X(N) / X(1) = N / (1 + sigma (N - 1) + kappa N (N - 1))}, where contention {@code sigma} is the
+ * serialized part of the work (Amdahl's law when coherency is 0) and coherency {@code kappa} is the cost of keeping
+ * data consistent between threads, which makes throughput drop beyond the peak. Coefficients are found by least squares
+ * on the linearized form {@code N / C(N) - 1 = sigma (N - 1) + kappa N (N - 1)}, negative coefficients are not allowed.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class Scalability {
+
+    private static final double EPSILON = 1e-12;
+    private static final double PERCENT = 100;
+
+    private final int[] threads;
+    private final double[] throughput;
+    private final double contention;
+    private final double coherency;
+
+    /**
+     * Fits the law to measured throughput.
+     *
+     * @param threads    thread counts in ascending order, the first one has to be 1
+     * @param throughput throughput measured at respective thread counts
+     */
+    Scalability(final int[] threads, final double[] throughput) {
+        this.threads = threads.clone();
+        this.throughput = throughput.clone();
+        double s11 = 0;
+        double s12 = 0;
+        double s22 = 0;
+        double b1 = 0;
+        double b2 = 0;
+        for (int i = 0; i < threads.length; i++) {
+            final double n = threads[i];
+            final double capacity = throughput[i] / Math.max(EPSILON, throughput[0]);
+            final double y = n / Math.max(EPSILON, capacity) - 1;
+            final double x1 = n - 1;
+            final double x2 = n * (n - 1);
+            s11 += x1 * x1;
+            s12 += x1 * x2;
+            s22 += x2 * x2;
+            b1 += x1 * y;
+            b2 += x2 * y;
+        }
+        final double determinant = s11 * s22 - s12 * s12;
+        double sigma = determinant > EPSILON * s11 * s22 ? (b1 * s22 - b2 * s12) / determinant : 0;
+        double kappa = determinant > EPSILON * s11 * s22 ? (b2 * s11 - b1 * s12) / determinant : -1;
+        if (kappa < 0) {
+            // Amdahl's law
+            kappa = 0;
+            sigma = s11 > 0 ? b1 / s11 : 0;
+        } else if (sigma < 0) {
+            sigma = 0;
+            kappa = s22 > 0 ? b2 / s22 : 0;
+        }
+        this.contention = Math.max(0, sigma);
+        this.coherency = Math.max(0, kappa);
+    }
+
+    /**
+     * Returns contention coefficient: serialized part of the work.
+     *
+     * @return sigma, from 0 (perfectly parallel) to 1
+     */
+    double getContention() {
+        return contention;
+    }
+
+    /**
+     * Returns coherency coefficient: cost of data exchange between each pair of threads.
+     *
+     * @return kappa, 0 when throughput does not drop with more threads
+     */
+    double getCoherency() {
+        return coherency;
+    }
+
+    /**
+     * Returns number of threads with maximum throughput predicted by the law.
+     *
+     * @return peak thread count, {@link Double#POSITIVE_INFINITY} when coherency is 0
+     */
+    double getPeakThreads() {
+        return coherency > 0 ? Math.sqrt((1 - contention) / coherency) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns measured parallel efficiency: throughput per thread relative to single thread throughput.
+     *
+     * @param threadCount one of measured thread counts
+     * @return efficiency, 1 for linear scaling, {@link Double#NaN} when the thread count was not measured
+     */
+    double getEfficiency(final int threadCount) {
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i] == threadCount) {
+                return throughput[i] / (threadCount * Math.max(EPSILON, throughput[0]));
+            }
+        }
+        return Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < threads.length; i++) {
+            result.append(String.format(Locale.ROOT, "%d threads: %.1f ops/s (efficiency %.1f%%)%n", threads[i],
+                    throughput[i], getEfficiency(threads[i]) * PERCENT));
+        }
+        return result.append(String.format(Locale.ROOT, "USL contention %.4f, coherency %.6f, peak at %.1f threads",
+                contention, coherency, getPeakThreads())).toString();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+
+/**
+ * Indicates that the test should be executed in parallel on increasing number of threads: 1, 2, 4... up to
+ * {@link #maxThreads()}, each level for given time. Throughput of every level is reported together with coefficients of
+ * the Universal Scalability Law fitted to them, which show where the tested code stops scaling. Optionally the test
+ * fails when parallel efficiency at given number of threads is too low. Used by the MultiTestsRule, takes precedence
+ * over @{@link Parallel} and @{@link Repeat}.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({METHOD})
+public @interface ScalingSweep {
+
+    long DEFAULT_LEVEL_MS = 1000;
+    long DEFAULT_WARMUP_MS = 500;
+
+    /** Maximum number of threads, by default number of available processors. */
+    int maxThreads() default 0;
+
+    /** Time budget of every thread count in milliseconds. */
+    long millisPerLevel() default DEFAULT_LEVEL_MS;
+
+    /** Time in milliseconds the test is executed on maximum number of threads before measured levels. */
+    long warmupMillis() default DEFAULT_WARMUP_MS;
+
+    /**
+     * Minimum required parallel efficiency at {@link #efficiencyThreads()}: throughput divided by number of threads and
+     * single thread throughput, from 0 to 1. Not checked by default.
+     */
+    double minEfficiency() default 0;
+
+    /** Number of threads the efficiency is checked at, by default {@link #maxThreads()}. */
+    int efficiencyThreads() default 0;
+}
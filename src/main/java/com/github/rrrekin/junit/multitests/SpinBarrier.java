@@ -0,0 +1,90 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable barrier for short rounds of a stress test. Waiting parties spin instead of parking, so they are released
+ * within nanoseconds of each other and the round code starts in all threads at nearly the same time. After a number
+ * of spins waiting thread yields, so the barrier makes progress also with more parties than processors. Barrier is
+ * broken when one of the parties fails or a waiting thread is interrupted.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class SpinBarrier {
+
+    /** Number of spins before waiting thread yields. */
+    private static final int SPINS_BEFORE_YIELD = 1000;
+
+    private final int parties;
+    private final AtomicInteger arrived = new AtomicInteger();
+    private volatile int generation;
+    private volatile boolean broken;
+
+    /**
+     * Creates barrier.
+     *
+     * @param parties number of threads that have to arrive to open the barrier
+     */
+    SpinBarrier(final int parties) {
+        this.parties = parties;
+    }
+
+    /**
+     * Waits until all parties arrive.
+     *
+     * @return {@code false} when the barrier is broken
+     */
+    boolean await() {
+        final int current = generation;
+        if (arrived.incrementAndGet() == parties) {
+            // reset before opening, so parties of the next generation count from 0
+            arrived.set(0);
+            generation = current + 1;
+            return !broken;
+        }
+        int spins = 0;
+        while (generation == current) {
+            if (broken) {
+                return false;
+            }
+            if (++spins == SPINS_BEFORE_YIELD) {
+                spins = 0;
+                Thread.yield();
+                if (Thread.currentThread().isInterrupted()) {
+                    broken = true;
+                }
+            }
+        }
+        return !broken;
+    }
+
+    /** Releases all waiting parties, following waits return immediately. */
+    void breakBarrier() {
+        broken = true;
+    }
+
+    /**
+     * Checks if the barrier was broken.
+     *
+     * @return {@code true} when broken
+     */
+    boolean isBroken() {
+        return broken;
+    }
+}
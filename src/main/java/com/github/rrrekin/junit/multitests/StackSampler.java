@@ -0,0 +1,232 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread sampling stacks of test threads for {@link SamplingProfiler}. Only threads {@link #register() registered} by
+ * the {@link MultiTestsRule.ProfiledStatement} of the sampled test are dumped, so tests executed concurrently are not
+ * mixed up, and only frames above the {@link MultiTestsRule.ProfiledStatement} frame are recorded. Threads that ended
+ * are unregistered when sampled, all threads when sampling stops.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class StackSampler implements Runnable {
+
+    /** Class of the frame that marks the bottom of sampled stacks. */
+    static final String MARKER_CLASS = MultiTestsRule.ProfiledStatement.class.getName();
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final File file;
+    private final long intervalMillis;
+    private final int maxStacks;
+    private final int maxDepth;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    /** Sample counts by collapsed stack, accessed only by the sampling thread until it is stopped. */
+    private final Map<String, long[]> stacks = new HashMap<String, long[]>();
+    private final ConcurrentMap<Long, Boolean> threadIds = new ConcurrentHashMap<Long, Boolean>();
+    /** Marks threads already registered, so registration on every invocation neither locks nor allocates. */
+    private final ThreadLocal<Boolean> registered = new ThreadLocal<Boolean>();
+    private final Thread thread;
+    private volatile boolean stopped;
+    private long samples;
+
+    StackSampler(final File file, final long intervalMillis, final int maxStacks, final int maxDepth) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.maxStacks = maxStacks;
+        this.maxDepth = maxDepth;
+        this.thread = new Thread(this, "multitests-sampler");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /** Adds current thread to sampled threads, called by every thread executing the test. */
+    void register() {
+        if (registered.get() == null) {
+            registered.set(Boolean.TRUE);
+            threadIds.put(Thread.currentThread().getId(), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Stops sampling and writes collected stacks.
+     *
+     * @return written file
+     * @throws IOException when the file cannot be written
+     */
+    File stop() throws IOException {
+        stopped = true;
+        thread.interrupt();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (final InterruptedException ex) {
+                // collected stacks can be written only when sampling thread is finished
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        threadIds.clear();
+        write();
+        return file;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (final InterruptedException ex) {
+                // stopped
+                return;
+            }
+            sample();
+        }
+    }
+
+    /**
+     * Returns number of threads sampled now.
+     *
+     * @return registered thread count
+     */
+    int getRegisteredThreads() {
+        return threadIds.size();
+    }
+
+    /**
+     * Returns number of sampled test thread stacks.
+     *
+     * @return sample count
+     */
+    long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns number of samples of given stack.
+     *
+     * @param stack collapsed stack
+     * @return sample count
+     */
+    long getCount(final String stack) {
+        final long[] count = stacks.get(stack);
+        return count == null ? 0 : count[0];
+    }
+
+    /** Records stacks of registered threads executing profiled statement, threads that ended are unregistered. */
+    void sample() {
+        long[] ids = new long[threadIds.size()];
+        int count = 0;
+        for (final Long id : threadIds.keySet()) {
+            if (count < ids.length) {
+                ids[count++] = id;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        if (count < ids.length) {
+            ids = Arrays.copyOf(ids, count);
+        }
+        final ThreadInfo[] infos = threadBean.getThreadInfo(ids, false, false);
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null) {
+                threadIds.remove(ids[i]);
+                continue;
+            }
+            final String stack = collapse(infos[i]);
+            if (stack != null) {
+                count(stack);
+            }
+        }
+    }
+
+    private void count(final String stack) {
+        long[] count = stacks.get(stack);
+        if (count == null) {
+            final String key = stacks.size() < maxStacks ? stack : SamplingProfiler.OTHER_STACKS;
+            count = stacks.get(key);
+            if (count == null) {
+                count = new long[1];
+                stacks.put(key, count);
+            }
+        }
+        count[0]++;
+        samples++;
+    }
+
+    /** Returns frames above the marker frame, from the bottom, or {@code null} when there is no marker frame. */
+    private String collapse(final ThreadInfo info) {
+        final StackTraceElement[] frames = info.getStackTrace();
+        int marker = -1;
+        for (int i = frames.length - 1; i >= 0 && marker < 0; i--) {
+            if (MARKER_CLASS.equals(frames[i].getClassName())) {
+                marker = i;
+            }
+        }
+        if (marker <= 0) {
+            return null;
+        }
+        final StringBuilder stack = new StringBuilder();
+        for (int i = marker - 1; i >= Math.max(0, marker - maxDepth); i--) {
+            stack.append(stack.length() == 0 ? "" : ";").append(frames[i].getClassName()).append('.')
+                    .append(frames[i].getMethodName());
+        }
+        final LockInfo lock = info.getLockInfo();
+        if (lock != null) {
+            stack.append(";[").append(info.getThreadState()).append(" on ").append(lock.getClassName()).append(']');
+        }
+        return stack.toString();
+    }
+
+    private void write() throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        final Writer output = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+        try {
+            for (final Map.Entry<String, long[]> entry : stacks.entrySet()) {
+                output.write(entry.getKey() + ' ' + entry.getValue()[0] + '\n');
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One-shot gate that holds parallel test threads until all of them arrive, so test method code is started in all
+ * threads at the same time.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+interface StartGate {
+
+    /**
+     * Waits until all parties arrive at the gate.
+     *
+     * @throws Exception when waiting was interrupted or the gate was aborted
+     */
+    void arrive() throws Exception;
+
+    /** Releases all waiting parties with an exception, used when not all parties can be started. */
+    void abort();
+
+    /** Gate using cyclic barrier. */
+    final class Barrier implements StartGate {
+        private final CyclicBarrier barrier;
+
+        Barrier(final int parties) {
+            this.barrier = new CyclicBarrier(parties);
+        }
+
+        @Override
+        public void arrive() throws Exception {
+            barrier.await();
+        }
+
+        @Override
+        public void abort() {
+            barrier.reset();
+        }
+    }
+
+    /**
+     * Gate using count down latch. It does not need a lock to release waiting threads, so it scales better to very
+     * large numbers of (virtual) threads.
+     */
+    final class Latch implements StartGate {
+        private final CountDownLatch latch;
+        private volatile boolean aborted;
+
+        Latch(final int parties) {
+            this.latch = new CountDownLatch(parties);
+        }
+
+        @Override
+        public void arrive() throws Exception {
+            latch.countDown();
+            latch.await();
+            if (aborted) {
+                throw new BrokenBarrierException();
+            }
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            while (latch.getCount() > 0) {
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Gate on which arrived parties spin reading a volatile flag, set by the last arriving party. Waking parked threads
+     * spreads their start over tens to hundreds of microseconds, spinning threads start within a few microseconds as
+     * long as every party has its own processor. The loop itself is a plain volatile read, only every
+     * {@value #SPINS_BEFORE_HINT} spins {@code Thread.onSpinWait()} hint is given (when the JVM supports it, the method
+     * is called reflectively) and from time to time the thread yields, so the gate makes progress also with more
+     * parties than processors.
+     */
+    final class Spin implements StartGate {
+        /** Number of spins between spin-wait hints. */
+        private static final int SPINS_BEFORE_HINT = 64;
+        /** Number of spins before waiting thread yields and checks interruption. */
+        private static final int SPINS_BEFORE_YIELD = 16384;
+        private static final Method ON_SPIN_WAIT = findOnSpinWait();
+        private static final boolean HINT_SUPPORTED = ON_SPIN_WAIT != null;
+
+        private final AtomicInteger remaining;
+        private volatile boolean open;
+        private volatile boolean aborted;
+
+        Spin(final int parties) {
+            this.remaining = new AtomicInteger(parties);
+        }
+
+        @Override
+        public void arrive() throws Exception {
+            if (remaining.decrementAndGet() <= 0) {
+                open = true;
+            }
+            int spins = 0;
+            while (!open) {
+                if ((++spins & (SPINS_BEFORE_YIELD - 1)) == 0) {
+                    Thread.yield();
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                } else if (HINT_SUPPORTED && (spins & (SPINS_BEFORE_HINT - 1)) == 0) {
+                    ON_SPIN_WAIT.invoke(null);
+                }
+            }
+            if (aborted) {
+                throw new BrokenBarrierException();
+            }
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            open = true;
+        }
+
+        private static Method findOnSpinWait() {
+            try {
+                return Thread.class.getMethod("onSpinWait");
+            } catch (final NoSuchMethodException ex) {
+                // plain busy loop on JVMs older than 9
+                return null;
+            }
+        }
+    }
+}
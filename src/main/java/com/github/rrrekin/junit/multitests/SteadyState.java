@@ -0,0 +1,137 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detector of the end of adaptive warm-up executed by single thread. Warm-up invocations are grouped into windows of
+ * {@value #WINDOW_MILLIS}ms and steady state is reached when JIT compiler did not compile anything during the last
+ * {@value #WINDOWS} windows (as reported by {@link CompilationMXBean#getTotalCompilationTime()}) and mean latencies of
+ * these windows differ by at most 10% of the lowest one. Compilation time is JVM wide, so compilation
+ * triggered by other threads delays the steady state too. Warm-up ends when its time cap elapses even when steady state
+ * was not reached.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class SteadyState {
+
+    static final long WINDOW_MILLIS = 10;
+    static final int WINDOWS = 5;
+    /** Maximum difference of window latencies relative to the lowest one. */
+    static final double MAX_SPREAD = 0.1;
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+
+    private final CompilationMXBean compiler;
+    private final long start = System.nanoTime();
+    private final long maxNanos;
+    /** Mean latencies and compilation times at the end of recent windows, used as ring buffers. */
+    private final double[] windowLatencies = new double[WINDOWS];
+    private final long[] compilationMillis = new long[WINDOWS + 1];
+    private long windows;
+    private long windowStart = start;
+    private long windowInvocations;
+    private long invocations;
+    private boolean reached;
+
+    /**
+     * Creates detector of JVM compiler activity.
+     *
+     * @param maxMillis warm-up time cap in milliseconds
+     */
+    SteadyState(final long maxMillis) {
+        this(maxMillis, compilationMonitor());
+    }
+
+    /**
+     * Creates detector.
+     *
+     * @param maxMillis warm-up time cap in milliseconds
+     * @param compiler  monitored compiler, {@code null} when only latencies are checked
+     */
+    SteadyState(final long maxMillis, final CompilationMXBean compiler) {
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.compiler = compiler;
+        compilationMillis[0] = compilationTime();
+    }
+
+    /**
+     * Counts warm-up invocation that just ended.
+     *
+     * @return {@code true} when warm-up is finished: steady state is reached or time cap elapsed
+     */
+    boolean invoked() {
+        invocations++;
+        windowInvocations++;
+        final long now = System.nanoTime();
+        if (now - windowStart < WINDOW_NANOS) {
+            return false;
+        }
+        windowLatencies[(int) (windows % WINDOWS)] = (double) (now - windowStart) / windowInvocations;
+        windows++;
+        compilationMillis[(int) (windows % compilationMillis.length)] = compilationTime();
+        windowStart = now;
+        windowInvocations = 0;
+        reached = windows >= WINDOWS && isCompilationQuiet() && isLatencyStable();
+        return reached || now - start >= maxNanos;
+    }
+
+    /**
+     * Checks if warm-up ended in steady state.
+     *
+     * @return {@code false} when time cap elapsed before steady state was reached
+     */
+    boolean isReached() {
+        return reached;
+    }
+
+    /**
+     * Returns number of warm-up invocations.
+     *
+     * @return invocation count
+     */
+    long getInvocations() {
+        return invocations;
+    }
+
+    private boolean isCompilationQuiet() {
+        final int length = compilationMillis.length;
+        return compilationMillis[(int) (windows % length)] == compilationMillis[(int) ((windows + 1) % length)];
+    }
+
+    private boolean isLatencyStable() {
+        double lowest = Double.MAX_VALUE;
+        double highest = 0;
+        for (final double latency : windowLatencies) {
+            lowest = Math.min(lowest, latency);
+            highest = Math.max(highest, latency);
+        }
+        return highest - lowest <= lowest * MAX_SPREAD;
+    }
+
+    private long compilationTime() {
+        return compiler == null ? 0 : compiler.getTotalCompilationTime();
+    }
+
+    private static CompilationMXBean compilationMonitor() {
+        final CompilationMXBean result = ManagementFactory.getCompilationMXBean();
+        return result != null && result.isCompilationTimeMonitoringSupported() ? result : null;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Histogram of outcomes observed by a {@link StressRun}. Outcome is the content of the result array filled by actors
+ * and the arbiter in a single round. Outcomes are classified by expectations declared in the stress run, undeclared
+ * outcomes are {@link Expect#FORBIDDEN}. Recording an already observed outcome does not allocate memory, so millions
+ * of rounds can be recorded.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class StressOutcomes {
+
+    private static final String ROW_FORMAT = "%-24s %-12s %14s  %s%n";
+
+    private final List<long[]> outcomes = new ArrayList<long[]>();
+    private final List<Expect> expectations = new ArrayList<Expect>();
+    private final List<String> descriptions = new ArrayList<String>();
+    private long[] counts = new long[0];
+    private long rounds;
+
+    /**
+     * Declares expectation of an outcome.
+     *
+     * @param expect      outcome classification
+     * @param description outcome description printed in the report
+     * @param outcome     result values
+     */
+    void declare(final Expect expect, final String description, final long[] outcome) {
+        final int index = indexOf(outcome);
+        if (index >= 0) {
+            expectations.set(index, expect);
+            descriptions.set(index, description);
+        } else {
+            add(outcome, expect, description);
+        }
+    }
+
+    /**
+     * Counts outcome of single round.
+     *
+     * @param outcome result values, the array may be reused by the caller
+     */
+    void record(final long[] outcome) {
+        int index = indexOf(outcome);
+        if (index < 0) {
+            index = add(outcome.clone(), Expect.FORBIDDEN, "");
+        }
+        counts[index]++;
+        rounds++;
+    }
+
+    /**
+     * Returns number of executed rounds.
+     *
+     * @return round count
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Returns number of rounds with given outcome.
+     *
+     * @param outcome result values
+     * @return round count
+     */
+    public long getCount(final long... outcome) {
+        final int index = indexOf(outcome);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    /**
+     * Returns number of rounds with outcomes of given classification.
+     *
+     * @param expect outcome classification
+     * @return round count
+     */
+    public long getCount(final Expect expect) {
+        long count = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (expectations.get(i) == expect) {
+                count += counts[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks that no forbidden outcome was observed.
+     *
+     * @return these outcomes
+     * @throws AssertionError with outcome table when a forbidden outcome was observed
+     */
+    public StressOutcomes verify() {
+        if (getCount(Expect.FORBIDDEN) > 0) {
+            throw new AssertionError("Forbidden outcomes observed:\n" + this);
+        }
+        return this;
+    }
+
+    /**
+     * Returns table of all declared and observed outcomes.
+     *
+     * @return outcome table
+     */
+    @Override
+    public String toString() {
+        final StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, ROW_FORMAT, "Outcome", "Expect", "Count", "Description"));
+        for (int i = 0; i < outcomes.size(); i++) {
+            table.append(String.format(Locale.ROOT, ROW_FORMAT, Arrays.toString(outcomes.get(i)), expectations.get(i),
+                    counts[i], descriptions.get(i)));
+        }
+        return table.append(rounds).append(" rounds").toString();
+    }
+
+    private int indexOf(final long[] outcome) {
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (Arrays.equals(outcomes.get(i), outcome)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int add(final long[] outcome, final Expect expect, final String description) {
+        outcomes.add(outcome);
+        expectations.add(expect);
+        descriptions.add(description);
+        counts = Arrays.copyOf(counts, outcomes.size());
+        return outcomes.size() - 1;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Concurrency stress test in the style of jcstress. Unlike @{@link Parallel}, which runs the same test body in every
+ * thread, a stress run executes different actors, each in its own thread, against a fresh shared state in every round.
+ * When all actors of the round are done, the arbiter reads the final state. Actors and the arbiter write what they
+ * observed to the result array, whose content is the outcome of the round. Outcomes are counted in a histogram and
+ * classified as {@link Expect#ACCEPTABLE acceptable}, {@link Expect#INTERESTING interesting} or
+ * {@link Expect#FORBIDDEN forbidden}.
+ *
+ * <p>Rare reorderings show up only when actors start a round at nearly the same time, so rounds are synchronized with
+ * a spin barrier, and millions of short rounds are executed. States of a batch of rounds are prepared and arbitrated
+ * by the calling thread while actors are waiting, so actors run rounds back to back.</p>
+ *
+ * <pre>
+ *     new StressRun&lt;Flags&gt;(stateFactory, 2)
+ *             .actor(writeXReadY)
+ *             .actor(writeYReadX)
+ *             .acceptable("one thread saw the other write", 0, 1)
+ *             .acceptable("one thread saw the other write", 1, 0)
+ *             .acceptable("both writes seen", 1, 1)
+ *             .run()
+ *             .verify();
+ * </pre>
+ *
+ * <p>Actor threads are taken from the {@link WorkerPool}, the shared one by default.</p>
+ *
+ * @param <S> type of the shared state
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class StressRun<S> {
+
+    public static final long DEFAULT_ROUNDS = 1000000;
+
+    /** Number of rounds prepared and arbitrated together. */
+    static final int BATCH_SIZE = 1024;
+
+    private final State<S> stateFactory;
+    private final int resultSlots;
+    private final List<Actor<S>> actors = new ArrayList<Actor<S>>();
+    private final StressOutcomes outcomes = new StressOutcomes();
+    private Arbiter<S> arbiter;
+    private long rounds = DEFAULT_ROUNDS;
+    private WorkerPool pool;
+
+    /**
+     * Creates stress run.
+     *
+     * @param stateFactory creates the shared state of every round
+     * @param resultSlots  size of the result array
+     */
+    public StressRun(final State<S> stateFactory, final int resultSlots) {
+        if (resultSlots < 1) {
+            throw new IllegalArgumentException("Stress run requires at least one result slot");
+        }
+        this.stateFactory = stateFactory;
+        this.resultSlots = resultSlots;
+    }
+
+    /**
+     * Adds actor, every actor is executed by its own thread.
+     *
+     * @param actor actor
+     * @return this stress run
+     */
+    public StressRun<S> actor(final Actor<S> actor) {
+        actors.add(actor);
+        return this;
+    }
+
+    /**
+     * Sets arbiter executed after all actors of a round are done.
+     *
+     * @param roundArbiter arbiter
+     * @return this stress run
+     */
+    public StressRun<S> arbiter(final Arbiter<S> roundArbiter) {
+        this.arbiter = roundArbiter;
+        return this;
+    }
+
+    /**
+     * Declares acceptable outcome.
+     *
+     * @param description outcome description
+     * @param outcome     result values
+     * @return this stress run
+     */
+    public StressRun<S> acceptable(final String description, final long... outcome) {
+        return expect(Expect.ACCEPTABLE, description, outcome);
+    }
+
+    /**
+     * Declares acceptable but interesting outcome.
+     *
+     * @param description outcome description
+     * @param outcome     result values
+     * @return this stress run
+     */
+    public StressRun<S> interesting(final String description, final long... outcome) {
+        return expect(Expect.INTERESTING, description, outcome);
+    }
+
+    /**
+     * Declares forbidden outcome. Undeclared outcomes are forbidden as well, so it is needed only to describe the
+     * outcome in the report.
+     *
+     * @param description outcome description
+     * @param outcome     result values
+     * @return this stress run
+     */
+    public StressRun<S> forbidden(final String description, final long... outcome) {
+        return expect(Expect.FORBIDDEN, description, outcome);
+    }
+
+    /**
+     * Sets number of rounds.
+     *
+     * @param count number of rounds, {@value #DEFAULT_ROUNDS} by default
+     * @return this stress run
+     */
+    public StressRun<S> rounds(final long count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Stress run requires at least one round");
+        }
+        this.rounds = count;
+        return this;
+    }
+
+    /**
+     * Sets pool providing actor threads.
+     *
+     * @param workerPool worker pool, {@code null} for the shared pool
+     * @return this stress run
+     */
+    public StressRun<S> withWorkerPool(final WorkerPool workerPool) {
+        this.pool = workerPool;
+        return this;
+    }
+
+    /**
+     * Executes all rounds.
+     *
+     * @return observed outcomes
+     * @throws Throwable first failure of an actor or the arbiter
+     */
+    public StressOutcomes run() throws Throwable {
+        if (actors.isEmpty()) {
+            throw new IllegalStateException("Stress run requires at least one actor");
+        }
+        final WorkerPool workerPool = pool == null ? WorkerPool.shared() : pool;
+        if (actors.size() > workerPool.getMaximumThreads()) {
+            throw new IllegalStateException("Stress run requires " + actors.size()
+                    + " threads, but worker pool allows " + workerPool.getMaximumThreads());
+        }
+        new Execution(workerPool).run();
+        return outcomes;
+    }
+
+    private StressRun<S> expect(final Expect expect, final String description, final long[] outcome) {
+        if (outcome.length != resultSlots) {
+            throw new IllegalArgumentException("Outcome " + Arrays.toString(outcome) + " does not have "
+                    + resultSlots + " values");
+        }
+        outcomes.declare(expect, description, outcome.clone());
+        return this;
+    }
+
+    /**
+     * Creates shared state of a round.
+     *
+     * @param <S> type of the shared state
+     */
+    public interface State<S> {
+        /**
+         * Creates new state.
+         *
+         * @return state of a single round
+         */
+        S newState();
+    }
+
+    /**
+     * Code executed by single thread in every round.
+     *
+     * @param <S> type of the shared state
+     */
+    public interface Actor<S> {
+        /**
+         * Executes actor's part of the round.
+         *
+         * @param state  state shared with other actors of the round
+         * @param result result array of the round, actor should write only its own slots
+         * @throws Exception when the round fails
+         */
+        void act(S state, long[] result) throws Exception;
+    }
+
+    /**
+     * Code executed after all actors of a round are done.
+     *
+     * @param <S> type of the shared state
+     */
+    public interface Arbiter<S> {
+        /**
+         * Observes final state of the round.
+         *
+         * @param state  state of the round
+         * @param result result array of the round
+         * @throws Exception when the round fails
+         */
+        void arbitrate(S state, long[] result) throws Exception;
+    }
+
+    /** Single execution of all rounds. */
+    private final class Execution {
+        private final WorkerPool workerPool;
+        private final Object[] states = new Object[BATCH_SIZE];
+        private final long[][] results = new long[BATCH_SIZE][resultSlots];
+        /** Opened by the calling thread and actors when a batch is prepared and when it is done. */
+        private final SpinBarrier batchBarrier = new SpinBarrier(actors.size() + 1);
+        private final SpinBarrier roundBarrier = new SpinBarrier(actors.size());
+        private final CountDownLatch finished = new CountDownLatch(actors.size());
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        Execution(final WorkerPool workerPool) {
+            this.workerPool = workerPool;
+        }
+
+        void run() throws Throwable {
+            for (int i = 0; i < actors.size(); i++) {
+                start(actors.get(i));
+            }
+            try {
+                for (long done = 0; done < rounds && !batchBarrier.isBroken(); done += BATCH_SIZE) {
+                    final int size = (int) Math.min(BATCH_SIZE, rounds - done);
+                    prepare(size);
+                    if (!batchBarrier.await() || !batchBarrier.await()) {
+                        break;
+                    }
+                    arbitrate(size);
+                }
+            } catch (final Throwable ex) {
+                fail(ex);
+            } finally {
+                finished.await();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+
+        private void start(final Actor<S> actor) {
+            try {
+                workerPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            act(actor);
+                        } catch (final Throwable ex) {
+                            fail(ex);
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            } catch (final RejectedExecutionException ex) {
+                fail(ex);
+                finished.countDown();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void act(final Actor<S> actor) throws Exception {
+            for (long done = 0; done < rounds; done += BATCH_SIZE) {
+                final int size = (int) Math.min(BATCH_SIZE, rounds - done);
+                if (!batchBarrier.await()) {
+                    return;
+                }
+                for (int i = 0; i < size; i++) {
+                    if (!roundBarrier.await()) {
+                        return;
+                    }
+                    actor.act((S) states[i], results[i]);
+                }
+                if (!batchBarrier.await()) {
+                    return;
+                }
+            }
+        }
+
+        private void prepare(final int size) {
+            for (int i = 0; i < size; i++) {
+                states[i] = stateFactory.newState();
+                Arrays.fill(results[i], 0);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void arbitrate(final int size) throws Exception {
+            for (int i = 0; i < size; i++) {
+                if (arbiter != null) {
+                    arbiter.arbitrate((S) states[i], results[i]);
+                }
+                outcomes.record(results[i]);
+                states[i] = null;
+            }
+        }
+
+        private void fail(final Throwable ex) {
+            failure.compareAndSet(null, ex);
+            batchBarrier.breakBarrier();
+            roundBarrier.breakBarrier();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads executor. The library is compiled for old JVMs, so the executor is looked up reflectively
+ * and {@code null} is returned when the JVM does not support virtual threads (or they are a disabled preview feature).
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class VirtualThreads {
+
+    private static final Method FACTORY_METHOD = findFactoryMethod();
+    private static volatile boolean available = FACTORY_METHOD != null;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks if virtual threads can be used on this JVM.
+     *
+     * @return {@code true} when virtual threads are supported
+     */
+    static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Creates executor starting new virtual thread for every task.
+     *
+     * @return new executor or {@code null} when virtual threads are not supported
+     */
+    static ExecutorService newExecutor() {
+        if (!available) {
+            return null;
+        }
+        try {
+            return (ExecutorService) FACTORY_METHOD.invoke(null);
+        } catch (final Exception ex) {
+            // e.g. UnsupportedOperationException on JDK 19/20 without --enable-preview
+            available = false;
+            return null;
+        }
+    }
+
+    private static Method findFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Detects deadlocks of parallel test threads and describes hanging threads. Deadlocks are found by
+ * {@link ThreadMXBean#findDeadlockedThreads()}, which covers both monitors and ownable synchronizers (e.g.
+ * {@link java.util.concurrent.locks.ReentrantLock}) when the JVM supports it. Thread dumps contain full stacks, locks the
+ * threads wait for with their owners, and monitors and synchronizers the threads hold.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+final class Watchdog {
+
+    /**
+     * Time between deadlock checks. Every check brings all threads to a safepoint, so checks are rare enough not to
+     * disturb latencies of measured tests.
+     */
+    static final long CHECK_INTERVAL_MS = 1000;
+
+    private static final String NEW_LINE = "\n";
+    private static final String QUOTE = "\"";
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Checks if any of given threads is deadlocked.
+     *
+     * @param threads watched threads
+     * @return dump of all deadlocked threads, {@code null} when none of the watched threads is deadlocked
+     */
+    String findDeadlock(final List<Thread> threads) {
+        final long[] deadlocked = threadBean.isSynchronizerUsageSupported()
+                ? threadBean.findDeadlockedThreads() : threadBean.findMonitorDeadlockedThreads();
+        if (deadlocked == null) {
+            return null;
+        }
+        final Set<Long> watched = new HashSet<Long>();
+        for (final Thread thread : threads) {
+            watched.add(thread.getId());
+        }
+        for (final long id : deadlocked) {
+            if (watched.contains(id)) {
+                return dump(deadlocked);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates dump of given threads.
+     *
+     * @param threads dumped threads
+     * @return stacks and locks of the threads
+     */
+    String dump(final List<Thread> threads) {
+        final long[] ids = new long[threads.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = threads.get(i).getId();
+        }
+        final StringBuilder result = new StringBuilder(dump(ids));
+        for (final Thread thread : threads) {
+            if (!contains(ids, thread)) {
+                // thread not known to thread bean, e.g. virtual thread
+                result.append(NEW_LINE).append(QUOTE).append(thread.getName()).append(QUOTE).append(' ')
+                        .append(thread.getState());
+                appendFrames(result, thread.getStackTrace(), new MonitorInfo[0]);
+            }
+        }
+        return result.toString();
+    }
+
+    private String dump(final long[] ids) {
+        final ThreadInfo[] infos = threadBean.getThreadInfo(ids, threadBean.isObjectMonitorUsageSupported(),
+                threadBean.isSynchronizerUsageSupported());
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < infos.length; i++) {
+            if (infos[i] == null) {
+                // finished or not a platform thread
+                ids[i] = -1;
+            } else {
+                appendThread(result, infos[i]);
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean contains(final long[] ids, final Thread thread) {
+        for (final long id : ids) {
+            if (id == thread.getId()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendThread(final StringBuilder result, final ThreadInfo info) {
+        result.append(NEW_LINE).append(QUOTE).append(info.getThreadName()).append(QUOTE).append(' ')
+                .append(info.getThreadState());
+        if (info.getLockName() != null) {
+            result.append(" on ").append(info.getLockName());
+        }
+        if (info.getLockOwnerName() != null) {
+            result.append(" owned by ").append(QUOTE).append(info.getLockOwnerName()).append(QUOTE);
+        }
+        final MonitorInfo[] monitors = info.getLockedMonitors();
+        appendFrames(result, info.getStackTrace(), monitors == null ? new MonitorInfo[0] : monitors);
+        final LockInfo[] synchronizers = info.getLockedSynchronizers();
+        if (synchronizers != null && synchronizers.length > 0) {
+            final List<String> names = new ArrayList<String>();
+            for (final LockInfo synchronizer : synchronizers) {
+                names.add(synchronizer.toString());
+            }
+            result.append(NEW_LINE).append("\tLocked synchronizers: ").append(names);
+        }
+    }
+
+    private static void appendFrames(final StringBuilder result, final StackTraceElement[] frames,
+                                     final MonitorInfo[] monitors) {
+        for (int depth = 0; depth < frames.length; depth++) {
+            result.append(NEW_LINE).append("\tat ").append(frames[depth]);
+            for (final MonitorInfo monitor : monitors) {
+                if (monitor.getLockedStackDepth() == depth) {
+                    result.append(NEW_LINE).append("\t- locked ").append(monitor);
+                }
+            }
+        }
+    }
+}
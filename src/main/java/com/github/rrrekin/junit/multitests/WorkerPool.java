@@ -0,0 +1,308 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of warm worker threads used to run @{@link Parallel} tests. Threads are created on demand, kept alive for the
+ * configured time after their task is done and reused by following parallel statements, so suites with many
+ * @{@link Parallel} methods do not pay for thread creation in every test.
+ *
+ * <p>By default all rules share single JVM-wide pool of daemon threads returned by {@link #shared()}. Its sizing can be
+ * changed with system properties {@value #CORE_THREADS_PROPERTY}, {@value #MAX_THREADS_PROPERTY} and
+ * {@value #KEEP_ALIVE_PROPERTY}. The shared pool is shut down when the JVM exits, its statistics are printed then when
+ * report stream is set with {@code WorkerPool.shared().reportTo(stream)}. A dedicated pool can be declared as a class
+ * rule and passed to the rule, it is shut down when all tests of the class are finished:</p>
+ *
+ * <pre>
+ *     &#64;ClassRule public static WorkerPool pool = new WorkerPool(0, 200, 60000).reportTo(System.out);
+ *     &#64;Rule public MultiTestsRule multiTests = new MultiTestsRule().withWorkerPool(pool);
+ * </pre>
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public final class WorkerPool implements TestRule {
+
+    /** System property with number of threads kept alive in the shared pool even when idle. */
+    public static final String CORE_THREADS_PROPERTY = "multitests.pool.coreThreads";
+    /** System property with maximum number of threads in the shared pool. */
+    public static final String MAX_THREADS_PROPERTY = "multitests.pool.maxThreads";
+    /** System property with idle time in milliseconds after which non-core threads of the shared pool are stopped. */
+    public static final String KEEP_ALIVE_PROPERTY = "multitests.pool.keepAliveMillis";
+
+    public static final int DEFAULT_CORE_THREADS = 0;
+    public static final int DEFAULT_MAX_THREADS = Integer.MAX_VALUE;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 60000;
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Time to wait for a busy thread to become idle when all threads are started. */
+    private static final long HANDOFF_TIMEOUT_MS = 1000;
+    private static final String ALL_BUSY_PREFIX = "All ";
+    private static final String ALL_BUSY_SUFFIX = " worker pool threads are busy";
+    private static final String SHARED_POOL_NAME = "Shared worker pool";
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+    private static WorkerPool sharedPool;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong threadsCreated = new AtomicLong();
+    private final AtomicLong threadStartupNanos = new AtomicLong();
+    private final AtomicLong tasksExecuted = new AtomicLong();
+    private PrintStream reportStream;
+
+    /** Creates pool with default sizing: no core threads, unbounded number of threads, 60s keep alive. */
+    public WorkerPool() {
+        this(DEFAULT_CORE_THREADS, DEFAULT_MAX_THREADS, DEFAULT_KEEP_ALIVE_MS);
+    }
+
+    /**
+     * Creates pool with given sizing.
+     *
+     * @param coreThreads     number of threads started up front and kept alive even when idle
+     * @param maxThreads      maximum number of threads, it limits the biggest @{@link Parallel} thread count
+     * @param keepAliveMillis idle time after which threads above core size are stopped
+     */
+    public WorkerPool(final int coreThreads, final int maxThreads, final long keepAliveMillis) {
+        if (coreThreads < 0 || maxThreads < 1 || coreThreads > maxThreads || keepAliveMillis < 0) {
+            throw new IllegalArgumentException("Invalid worker pool sizing: core=" + coreThreads + ", max="
+                    + maxThreads + ", keepAlive=" + keepAliveMillis + "ms");
+        }
+        executor = new ThreadPoolExecutor(coreThreads, maxThreads, keepAliveMillis, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<Runnable>(), new WorkerThreadCreator(), new HandoffPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Returns JVM-wide pool used by rules without explicitly configured pool. Threads of this pool are daemons, so
+     * they do not block JVM exit when the test suite ends, the pool is shut down and reported by shutdown hook.
+     *
+     * @return shared worker pool
+     */
+    public static synchronized WorkerPool shared() {
+        if (sharedPool == null || sharedPool.isShutdown()) {
+            final WorkerPool pool = new WorkerPool(Integer.getInteger(CORE_THREADS_PROPERTY, DEFAULT_CORE_THREADS),
+                    Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS),
+                    Long.getLong(KEEP_ALIVE_PROPERTY, DEFAULT_KEEP_ALIVE_MS));
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pool.shutdownAndReport(SHARED_POOL_NAME);
+                }
+            }, "multitests-pool-shutdown"));
+            sharedPool = pool;
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Sets stream the pool statistics are printed to when the pool is shut down as a class rule, or when the JVM exits
+     * for the {@link #shared()} pool.
+     *
+     * @param stream report stream, {@code null} disables reporting
+     * @return this pool
+     */
+    public WorkerPool reportTo(final PrintStream stream) {
+        this.reportStream = stream;
+        return this;
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    base.evaluate();
+                } finally {
+                    shutdownAndReport(description.getDisplayName());
+                }
+            }
+        };
+    }
+
+    /**
+     * Shuts the pool down and prints its statistics to report stream, if set.
+     *
+     * @param name name of the pool user printed with the statistics
+     */
+    void shutdownAndReport(final String name) {
+        shutdown();
+        if (reportStream != null) {
+            reportStream.println(name + ": " + this);
+        }
+    }
+
+    /** Stops all idle threads and rejects new tasks. Running tasks are not interrupted. */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Checks if the pool was shut down.
+     *
+     * @return {@code true} when no more tasks are accepted
+     */
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Returns maximum number of threads, parallel statements requiring more threads cannot run in this pool.
+     *
+     * @return maximum thread count
+     */
+    public int getMaximumThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns number of threads created since the pool was started.
+     *
+     * @return created thread count
+     */
+    public long getThreadsCreated() {
+        return threadsCreated.get();
+    }
+
+    /**
+     * Returns number of tasks executed by the pool - each parallel test execution is a single task.
+     *
+     * @return executed task count
+     */
+    public long getTasksExecuted() {
+        return tasksExecuted.get();
+    }
+
+    /**
+     * Returns estimated time saved by running tasks on already started threads. It is the number of tasks that did not
+     * need new thread multiplied by the average time between thread creation and its first task start.
+     *
+     * @return estimated saved thread setup time in nanoseconds
+     */
+    public long getSavedSetupNanos() {
+        final long created = threadsCreated.get();
+        if (created == 0) {
+            return 0;
+        }
+        final long reused = Math.max(0, tasksExecuted.get() - created);
+        return reused * (threadStartupNanos.get() / created);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPool[threads created: " + threadsCreated.get() + ", tasks executed: " + tasksExecuted.get()
+                + ", saved setup time: " + String.format(Locale.ROOT, "%.3f", getSavedSetupNanos() / NANOS_PER_MILLI)
+                + "ms]";
+    }
+
+    /**
+     * Executes task on a pool thread, new thread is started if there is no idle one.
+     *
+     * @param task task to execute
+     * @throws java.util.concurrent.RejectedExecutionException when pool is shut down or all threads are busy
+     */
+    void execute(final Runnable task) {
+        executor.execute(task);
+        tasksExecuted.incrementAndGet();
+    }
+
+    /**
+     * Executes task on a pool thread when there is an idle one or a new thread can be started, never waits for a busy
+     * thread to become idle.
+     *
+     * @param task task to execute
+     * @throws java.util.concurrent.RejectedExecutionException when pool is shut down or all threads are busy
+     */
+    void executeWithoutWaiting(final Runnable task) {
+        executor.execute(new WithoutHandoff(task));
+        tasksExecuted.incrementAndGet();
+    }
+
+    /**
+     * When all threads are busy, waits for a while for one of them to become idle. Thread that has just finished its
+     * task needs a moment to get back to the queue, so without waiting pool working at maximum size would reject
+     * tasks submitted right after previous parallel test finished.
+     */
+    private static final class HandoffPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(final Runnable task, final ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Worker pool is shut down");
+            }
+            if (task instanceof WithoutHandoff) {
+                throw new RejectedExecutionException(ALL_BUSY_PREFIX + pool.getMaximumPoolSize() + ALL_BUSY_SUFFIX);
+            }
+            try {
+                if (!pool.getQueue().offer(task, HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new RejectedExecutionException(ALL_BUSY_PREFIX + pool.getMaximumPoolSize()
+                            + ALL_BUSY_SUFFIX);
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for idle worker", ex);
+            }
+        }
+    }
+
+    /** Task that is rejected at once when all threads are busy, instead of waiting for handoff. */
+    private static final class WithoutHandoff implements Runnable {
+        private final Runnable task;
+
+        WithoutHandoff(final Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    /** Creates daemon worker threads and measures time they need to start running their first task. */
+    private final class WorkerThreadCreator implements ThreadFactory {
+        private final String namePrefix = "multitests-pool-" + POOL_COUNTER.incrementAndGet() + "-worker-";
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final long requested = System.nanoTime();
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    threadStartupNanos.addAndGet(System.nanoTime() - requested);
+                    runnable.run();
+                }
+            }, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            threadsCreated.incrementAndGet();
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class ArrivalScheduleTest {
+
+    private static final double RATE = 1000;
+    private static final long MILLI = 1000000;
+
+    @Test
+    public void shouldSpaceInvocationsEvenly() throws Exception {
+        // given
+        final ArrivalSchedule schedule = new ArrivalSchedule(RATE, 0, 0, 10 * MILLI);
+        // then
+        assertEquals("Invocations", 10, schedule.getInvocations());
+        assertEquals("First offset", 0, schedule.offsetOf(0));
+        assertEquals("Offset", 3 * MILLI, schedule.offsetOf(3));
+        assertEquals("Last offset", 9 * MILLI, schedule.offsetOf(9));
+        assertEquals("Beyond schedule", -1, schedule.offsetOf(10));
+    }
+
+    @Test
+    public void shouldRampUpRateInSteps() throws Exception {
+        // given
+        final ArrivalSchedule schedule = new ArrivalSchedule(RATE, 4, 4 * MILLI, 4 * MILLI);
+        // then 1 + 2 + 3 invocations in ramp-up steps and 4 on the plateau
+        assertEquals("Invocations", 10, schedule.getInvocations());
+        assertEquals("First step", 0, schedule.offsetOf(0));
+        assertEquals("Second step", 4 * MILLI, schedule.offsetOf(1));
+        assertEquals("Second step", 6 * MILLI, schedule.offsetOf(2));
+        assertEquals("Third step", 8 * MILLI, schedule.offsetOf(3));
+        assertEquals("Plateau", 12 * MILLI, schedule.offsetOf(6));
+        assertEquals("Plateau", 15 * MILLI, schedule.offsetOf(9));
+    }
+
+    @Test
+    public void shouldScheduleUnlimitedPlateau() throws Exception {
+        // given
+        final ArrivalSchedule schedule = new ArrivalSchedule(RATE, 2, MILLI, 0);
+        // then
+        assertEquals("Invocations", Long.MAX_VALUE, schedule.getInvocations());
+        assertEquals("Plateau", MILLI + 1000 * MILLI, schedule.offsetOf(1001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveRate() throws Exception {
+        // when
+        new ArrivalSchedule(0, 0, 0, MILLI);
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class BaselineStoreTest {
+
+    private static final int SAMPLES = 1000;
+    private static final long MEAN_NANOS = 100000;
+    private static final long DEVIATION_NANOS = 10000;
+    private static final double THROUGHPUT = 1234.5;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Description description = Description.createTestDescription(BaselineStoreTest.class, "test");
+    private final Random random = new Random(1);
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "build/baseline.properties");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(BaselineStore.UPDATE_PROPERTY);
+    }
+
+    @Test
+    public void shouldStoreFirstResultsAsBaseline() throws Exception {
+        // given
+        final BaselineStore store = new BaselineStore(file);
+        assertFalse("Baseline before first run", store.hasBaseline(description));
+        // when
+        store.check(description, sample(MEAN_NANOS), THROUGHPUT);
+        // then
+        assertTrue("Baseline in store", store.hasBaseline(description));
+        assertTrue("Baseline in file", new BaselineStore(file).hasBaseline(description));
+    }
+
+    @Test
+    public void shouldPassWithoutSignificantDifference() throws Exception {
+        // given
+        new BaselineStore(file).check(description, sample(MEAN_NANOS), THROUGHPUT);
+        // when
+        new BaselineStore(file).check(description, sample(MEAN_NANOS), THROUGHPUT);
+        // then no regression reported
+    }
+
+    @Test
+    public void shouldFailOnSignificantSlowdown() throws Exception {
+        // given
+        new BaselineStore(file).check(description, sample(MEAN_NANOS), THROUGHPUT);
+        // when
+        try {
+            new BaselineStore(file).check(description, sample(MEAN_NANOS + DEVIATION_NANOS), THROUGHPUT);
+            fail("Regression not detected");
+        } catch (final AssertionError ex) {
+            // then
+            assertThat("Failure message", ex.getMessage(), containsString("Latency regression against baseline"));
+            assertThat("Failure message", ex.getMessage(), containsString("throughput 1234.5"));
+        }
+    }
+
+    @Test
+    public void shouldReplaceBaselineWhenUpdateRequested() throws Exception {
+        // given
+        new BaselineStore(file).check(description, sample(MEAN_NANOS), THROUGHPUT);
+        System.setProperty(BaselineStore.UPDATE_PROPERTY, "true");
+        new BaselineStore(file).check(description, sample(MEAN_NANOS + DEVIATION_NANOS), THROUGHPUT);
+        System.clearProperty(BaselineStore.UPDATE_PROPERTY);
+        // when
+        new BaselineStore(file).check(description, sample(MEAN_NANOS + DEVIATION_NANOS), THROUGHPUT);
+        // then no regression reported
+    }
+
+    @Test
+    public void shouldKeepBaselinesOfOtherStoresSharingFile() throws Exception {
+        // given
+        final Description other = Description.createTestDescription(BaselineStoreTest.class, "other");
+        final BaselineStore first = new BaselineStore(file);
+        final BaselineStore second = new BaselineStore(file);
+        // when
+        first.check(description, sample(MEAN_NANOS), THROUGHPUT);
+        second.check(other, sample(MEAN_NANOS), THROUGHPUT);
+        // then
+        final BaselineStore stored = new BaselineStore(file);
+        assertTrue("Baseline of first store in file", stored.hasBaseline(description));
+        assertTrue("Baseline of second store in file", stored.hasBaseline(other));
+        assertTrue("Merged baseline in second store", second.hasBaseline(description));
+    }
+
+    private LatencyHistogram sample(final long mean) {
+        final LatencyHistogram result = new LatencyHistogram();
+        for (int i = 0; i < SAMPLES; i++) {
+            result.record(mean + (long) (random.nextGaussian() * DEVIATION_NANOS));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventRingTest {
+
+    private static final long LATENCY = 42;
+    private static final long TIMEOUT = 10000;
+
+    @Mock private InvocationListener listener;
+    @Mock private InvocationListener otherListener;
+    @Mock private Description test;
+
+    @Test
+    public void shouldDeliverEventsInOrder() throws Exception {
+        // given
+        final EventRing ring = new EventRing(4);
+        final InvocationEvents events = new InvocationEvents(ring, new InvocationListener[]{listener}, null, test);
+        final Exception failure = new Exception();
+        final long threadId = Thread.currentThread().getId();
+        events.started();
+        events.finished(LATENCY, null);
+        events.finished(LATENCY, failure);
+        events.retried(2, failure);
+        // when
+        for (int i = 0; i < 4; i++) {
+            assertTrue("Not delivered", ring.deliverNext());
+        }
+        // then
+        final InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).invocationStarted(eq(test), eq(threadId), anyLong());
+        inOrder.verify(listener).invocationFinished(eq(test), eq(threadId), anyLong(), eq(LATENCY));
+        inOrder.verify(listener).invocationFailed(eq(test), eq(threadId), anyLong(), eq(LATENCY), eq(failure));
+        inOrder.verify(listener).attemptRetried(eq(test), eq(threadId), anyLong(), eq(2), eq(failure));
+        assertFalse("Unexpected event", ring.deliverNext());
+    }
+
+    @Test
+    public void shouldDropEventsWhenFull() throws Exception {
+        // given
+        final EventRing ring = new EventRing(2);
+        final InvocationEvents events = new InvocationEvents(ring, new InvocationListener[]{listener}, null, test);
+        // when
+        events.started();
+        events.started();
+        events.started();
+        ring.deliverNext();
+        events.started();
+        int delivered = 1;
+        while (ring.deliverNext()) {
+            delivered++;
+        }
+        // then
+        assertEquals("Delivered", 3, delivered);
+        assertEquals("Dropped", 1, ring.getDropped());
+        then(listener).should(times(3)).invocationStarted(eq(test), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldDeliverToOtherListenersWhenListenerFails() throws Exception {
+        // given
+        final EventRing ring = new EventRing(2);
+        doThrow(new IllegalStateException()).when(listener).invocationStarted(eq(test), anyLong(), anyLong());
+        new InvocationEvents(ring, new InvocationListener[]{listener, otherListener}, null, test).started();
+        // when
+        ring.deliverNext();
+        // then
+        then(otherListener).should().invocationStarted(eq(test), anyLong(), anyLong());
+        assertEquals("Listener failures", 1, ring.getListenerFailures());
+    }
+
+    @Test
+    public void shouldDeliverEventsOnDispatcherThread() throws Exception {
+        // given
+        final EventRing ring = new EventRing(8).start();
+        // when
+        new InvocationEvents(ring, new InvocationListener[]{listener}, null, test).finished(LATENCY, null);
+        // then
+        assertTrue("Not delivered", ring.awaitDelivered(TIMEOUT));
+        then(listener).should().invocationFinished(eq(test), anyLong(), anyLong(), eq(LATENCY));
+    }
+}
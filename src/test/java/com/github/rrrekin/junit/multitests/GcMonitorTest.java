@@ -0,0 +1,58 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class GcMonitorTest {
+
+    private static final long LATENCY = 1234;
+    private static final int NOTIFICATION_WAIT_MS = 1000;
+
+    private GcMonitor monitor;
+
+    @Before
+    public void setUp() throws Exception {
+        monitor = new GcMonitor();
+        monitor.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        monitor.stop();
+    }
+
+    @Test
+    public void shouldCountCollections() throws Exception {
+        // when
+        System.gc();
+        final long start = System.currentTimeMillis();
+        while (monitor.getCollections() == 0 && System.currentTimeMillis() - start < NOTIFICATION_WAIT_MS) {
+            Thread.sleep(1);
+        }
+        monitor.stop();
+        // then
+        assertTrue("No collections", monitor.getCollections() > 0);
+        assertTrue("Heap usage", monitor.getPeakHeapBytes() > 0);
+        assertTrue("Longest pause", monitor.getMaxPauseMillis() <= monitor.getPauseMillis());
+    }
+
+    @Test
+    public void shouldRecordInvocationsOverlappingCollection() throws Exception {
+        // given
+        final long initialCount = monitor.collectionCount();
+        // when
+        System.gc();
+        monitor.invoked(initialCount, LATENCY);
+        monitor.invoked(monitor.collectionCount(), LATENCY);
+        // then
+        assertEquals("Overlapping invocations", 1, monitor.getOverlappingLatencies().getCount());
+        assertTrue("Report", monitor.toString().contains("1 invocations overlapped collection"));
+    }
+}
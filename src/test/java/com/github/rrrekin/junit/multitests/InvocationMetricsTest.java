@@ -0,0 +1,102 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class InvocationMetricsTest {
+
+    private static final long LATENCY = 1000;
+    private static final long SECOND = 1000000000L;
+    private static final int INVOCATIONS = 10;
+
+    @Test
+    public void shouldCountInvocations() throws Exception {
+        // given
+        final InvocationMetrics metrics = new InvocationMetrics();
+        // when
+        metrics.started();
+        metrics.started();
+        metrics.started();
+        metrics.finished(false);
+        metrics.finished(true);
+        metrics.retried();
+        // then
+        assertEquals("In flight", 1, metrics.getInFlight());
+        assertEquals("Completed", 1, metrics.getCompleted());
+        assertEquals("Failed", 1, metrics.getFailed());
+        assertEquals("Retries", 1, metrics.getRetries());
+    }
+
+    @Test
+    public void shouldMeasureRate() throws Exception {
+        // given
+        final InvocationMetrics metrics = new InvocationMetrics();
+        // when
+        for (int i = 0; i < INVOCATIONS; i++) {
+            metrics.finished(false);
+        }
+        // then
+        final double rate = metrics.rateAt(System.nanoTime() + SECOND);
+        assertTrue("Rate " + rate, rate > 0);
+    }
+
+    @Test
+    public void shouldCountInvocationsWhenListenerEventsAreDropped() throws Exception {
+        // given
+        final EventRing ring = new EventRing(2);
+        final InvocationMetrics metrics = new InvocationMetrics();
+        final InvocationEvents events = new InvocationEvents(ring, new InvocationListener[]{new InvocationListener() {
+            @Override
+            public void invocationStarted(final Description test, final long threadId, final long nanoTime) {
+                // ignored
+            }
+
+            @Override
+            public void invocationFinished(final Description test, final long threadId, final long nanoTime,
+                                           final long latencyNanos) {
+                // ignored
+            }
+
+            @Override
+            public void invocationFailed(final Description test, final long threadId, final long nanoTime,
+                                         final long latencyNanos, final Throwable failure) {
+                // ignored
+            }
+
+            @Override
+            public void attemptRetried(final Description test, final long threadId, final long nanoTime,
+                                       final int attempt, final Throwable failure) {
+                // ignored
+            }
+        }}, metrics, null);
+        // when
+        for (int i = 0; i < INVOCATIONS; i++) {
+            events.started();
+            events.finished(LATENCY, null);
+        }
+        // then
+        assertTrue("Events not dropped", ring.getDropped() > 0);
+        assertEquals("Completed", INVOCATIONS, metrics.getCompleted());
+        assertEquals("In flight", 0, metrics.getInFlight());
+    }
+
+    @Test
+    public void shouldRegisterMBean() throws Exception {
+        // when
+        final InvocationMetrics metrics = InvocationMetrics.registered();
+        // then
+        assertSame("Registered twice", metrics, InvocationMetrics.registered());
+        assertEquals("Completed attribute", metrics.getCompleted(), ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(InvocationMetrics.OBJECT_NAME), "Completed"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class InvocationSchedulerTest {
+
+    private static final int WORKERS = 16;
+    private static final long INVOCATIONS = 1000003;
+
+    @Test
+    public void shouldAssignSingleInvocationToEveryWorker() throws Exception {
+        // given
+        final InvocationScheduler scheduler = new InvocationScheduler(WORKERS, WORKERS);
+        final long[] range = new long[2];
+        for (int i = 0; i < WORKERS; i++) {
+            // when
+            assertTrue("No invocation for worker " + i, scheduler.next(i, range));
+            // then
+            assertEquals("Batch size", 1, range[1] - range[0]);
+            assertFalse("Second invocation for worker " + i, scheduler.next(i, range));
+        }
+    }
+
+    @Test
+    public void shouldNotStealLastInvocationOfOtherWorker() throws Exception {
+        // given
+        final InvocationScheduler scheduler = new InvocationScheduler(WORKERS, WORKERS);
+        final long[] range = new long[2];
+        scheduler.next(0, range);
+        // when
+        final boolean stolen = scheduler.next(0, range);
+        // then
+        assertFalse("Invocation stolen", stolen);
+    }
+
+    @Test
+    public void shouldExecuteAllInvocationsOnceWhenStealing() throws Exception {
+        // given
+        final InvocationScheduler scheduler = new InvocationScheduler(INVOCATIONS, WORKERS);
+        final boolean[] executed = new boolean[(int) INVOCATIONS];
+        final long[] range = new long[2];
+        long count = 0;
+        // when only single worker takes the invocations
+        while (scheduler.next(0, range)) {
+            assertTrue("Batch too big", range[1] - range[0] <= InvocationScheduler.MAX_BATCH);
+            for (long i = range[0]; i < range[1]; i++) {
+                assertFalse("Invocation executed twice: " + i, executed[(int) i]);
+                executed[(int) i] = true;
+                count++;
+            }
+        }
+        // and others take the rest
+        for (int worker = 1; worker < WORKERS; worker++) {
+            while (scheduler.next(worker, range)) {
+                for (long i = range[0]; i < range[1]; i++) {
+                    assertFalse("Invocation executed twice: " + i, executed[(int) i]);
+                    executed[(int) i] = true;
+                    count++;
+                }
+            }
+        }
+        // then
+        assertEquals("Executed invocations", INVOCATIONS, count);
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class LatencyHistogramTest {
+
+    private static final int VALUE_COUNT = 100000;
+    private static final double PRECISION = 1.0 / 64;
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() throws Exception {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void shouldReturnZerosWhenEmpty() throws Exception {
+        // expect
+        assertEquals("Count", 0, histogram.getCount());
+        assertEquals("Min", 0, histogram.getMin());
+        assertEquals("Max", 0, histogram.getMax());
+        assertEquals("p99", 0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void shouldKeepSmallValuesExactly() throws Exception {
+        // given
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        // expect
+        assertEquals("Count", 100, histogram.getCount());
+        assertEquals("Min", 1, histogram.getMin());
+        assertEquals("Max", 100, histogram.getMax());
+        assertEquals("p50", 50, histogram.getValueAtPercentile(50));
+        assertEquals("p99", 99, histogram.getValueAtPercentile(99));
+        assertEquals("Mean", 50.5, histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void shouldReturnPercentilesWithinPrecision() throws Exception {
+        // given
+        for (long i = 1; i <= VALUE_COUNT; i++) {
+            histogram.record(i * 1000);
+        }
+        // expect
+        assertPercentile(50, 50000000);
+        assertPercentile(90, 90000000);
+        assertPercentile(99, 99000000);
+        assertPercentile(99.9, 99900000);
+        assertEquals("Max", 100000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void shouldMapEveryBucketBoundaryToItsBucket() throws Exception {
+        // expect
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 / 2 + 1) {
+            final int index = LatencyHistogram.indexOf(value);
+            assertTrue("Value above bucket: " + value, value <= LatencyHistogram.highestValueOf(index));
+            assertTrue("Value below bucket: " + value, index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+        }
+    }
+
+    @Test
+    public void shouldMergeHistograms() throws Exception {
+        // given
+        final LatencyHistogram other = new LatencyHistogram();
+        histogram.record(10);
+        other.record(5);
+        other.record(20);
+        // when
+        histogram.add(other);
+        // then
+        assertEquals("Count", 3, histogram.getCount());
+        assertEquals("Min", 5, histogram.getMin());
+        assertEquals("Max", 20, histogram.getMax());
+        assertEquals("p50", 10, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void shouldComputeStandardDeviationAndMeanError() throws Exception {
+        // given
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        // when
+        final double deviation = histogram.getStdDeviation();
+        final double error = histogram.getMeanError();
+        // then
+        assertEquals("Standard deviation", 29.011, deviation, 0.001);
+        assertEquals("Mean error", 3.390 * deviation / 10, error, 0.01);
+    }
+
+    @Test
+    public void shouldReturnStudentQuantiles() throws Exception {
+        // expect
+        assertEquals("1 degree of freedom", 636.619, LatencyHistogram.tQuantile(1), 0.001);
+        assertEquals("11 degrees of freedom", 4.437, LatencyHistogram.tQuantile(11), 0.001);
+        assertEquals("30 degrees of freedom", 3.646, LatencyHistogram.tQuantile(30), 0.001);
+        assertEquals("Normal limit", 3.291, LatencyHistogram.tQuantile(1000000), 0.001);
+    }
+
+    private void assertPercentile(final double percentile, final long expected) {
+        final long actual = histogram.getValueAtPercentile(percentile);
+        assertTrue("p" + percentile + " = " + actual, Math.abs(actual - expected) <= expected * PRECISION);
+    }
+}
@@ -6,14 +6,34 @@ import org.junit.runner.Description;
 import org.junit.runner.RunWith;
 import org.junit.runners.model.Statement;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
@@ -26,13 +46,21 @@ public class MultiTestsRuleTest {
     private static final int TEST_COUNT = 3;
     private static final int TEST_PAR_COUNT = 5;
     private static final long TEST_TIMEOUT = 100;
+    private static final int TEST_ALLOCATION = 1024;
+    /** Limit not exceeded by invocation of mocked statement. */
+    private static final int GENEROUS_ALLOCATION = 1024 * 1024;
     @Mock private Statement statement;
     @Mock private Description description;
     @Mock private Retry retryAnnotation;
     @Mock private Repeat repeatAnnotation;
     @Mock private Parallel parallelAnnotation;
+    @Mock private MaxLatency maxLatencyAnnotation;
+    @Mock private MinThroughput minThroughputAnnotation;
+    @Mock private MaxAllocation maxAllocationAnnotation;
+    @Mock private InvocationListener listener;
 
     private MultiTestsRule rule;
+    private volatile byte[] allocated;
 
     @Before
     public void setUp() throws Throwable {
@@ -165,6 +193,31 @@ public class MultiTestsRuleTest {
         then(statement).should(times(TEST_COUNT * TEST_PAR_COUNT)).evaluate();
     }
 
+    @Test
+    public void shouldRepeatParallelStatementInLockstep() throws Throwable {
+        // given
+        doNothing().when(statement).evaluate(); // no retry, so cannot fail
+        when(parallelAnnotation.lockstep()).thenReturn(true);
+        when(description.getAnnotation(Retry.class)).thenReturn(null);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        then(statement).should(times(TEST_COUNT * TEST_PAR_COUNT)).evaluate();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectLockstepWithMoreInvocationsThanThreads() throws Throwable {
+        // given
+        when(parallelAnnotation.lockstep()).thenReturn(true);
+        when(parallelAnnotation.invocations()).thenReturn(TEST_PAR_COUNT * 2L);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.apply(statement, description);
+    }
+
     @Test
     public void shouldWrapWithAllStatements() throws Throwable {
         // Every execution retried and all repeated and started in parallel
@@ -183,4 +236,395 @@ public class MultiTestsRuleTest {
         then(statement).should(times(TEST_COUNT * TEST_PAR_COUNT + 2)).evaluate();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldReportMeasuredInvocations() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        rule.reportTo(new PrintStream(report, true));
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Retry.class)).thenReturn(null);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertThat("Report", report.toString(), containsString("testMethod: " + TEST_COUNT * TEST_PAR_COUNT
+                + " invocations"));
+        assertThat("Report", report.toString(), containsString("p99.9="));
+    }
+
+    @Test
+    public void shouldReportBenchmarkResults() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        rule.reportTo(new PrintStream(report, true));
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(repeatAnnotation.warmup()).thenReturn(TEST_COUNT);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        then(statement).should(times(2 * TEST_COUNT)).evaluate();
+        assertThat("Report", report.toString(), containsString("testMethod: " + TEST_COUNT + " invocations"));
+        assertThat("Report", report.toString(), containsString("testMethod: benchmark "));
+        assertThat("Report", report.toString(), containsString(" us/op (99.9%), "));
+    }
+
+    @Test
+    public void shouldReportResourceUsage() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        rule.reportTo(new PrintStream(report, true)).withResourceUsage(true);
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertThat("Report", report.toString(), containsString("testMethod: resources cpu "));
+        assertThat("Report", report.toString(), containsString("blocked "));
+        assertThat("Report", report.toString(), containsString("allocated "));
+    }
+
+    @Test
+    public void shouldReportStartSkewOfSpinStart() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        rule.reportTo(new PrintStream(report, true));
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        when(parallelAnnotation.spinStart()).thenReturn(true);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        then(statement).should(times(TEST_PAR_COUNT)).evaluate();
+        assertThat("Report", report.toString(), containsString("testMethod: start skew "));
+    }
+
+    @Test
+    public void shouldPublishInvocationEventsToListeners() throws Throwable {
+        // given
+        rule.withListener(listener);
+        when(description.getAnnotation(Retry.class)).thenReturn(retryAnnotation);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertTrue("Events not delivered", EventRing.shared().awaitDelivered(TEST_TIMEOUT * 100));
+        then(listener).should(times(3)).invocationStarted(eq(description), anyLong(), anyLong());
+        // failed attempts are retried inside repetitions
+        then(listener).should(times(3)).invocationFinished(eq(description), anyLong(), anyLong(), anyLong());
+        then(listener).should(never()).invocationFailed(eq(description), anyLong(), anyLong(), anyLong(),
+                any(Exception.class));
+        then(listener).should(times(1)).attemptRetried(eq(description), anyLong(), anyLong(), eq(2),
+                any(Exception.class));
+        then(listener).should(times(1)).attemptRetried(eq(description), anyLong(), anyLong(), eq(3),
+                any(Exception.class));
+    }
+
+    @Test
+    public void shouldPublishEveryAttemptOfRetriedTestAsInvocation() throws Throwable {
+        // given
+        rule.withListener(listener);
+        when(description.getAnnotation(Retry.class)).thenReturn(retryAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertTrue("Events not delivered", EventRing.shared().awaitDelivered(TEST_TIMEOUT * 100));
+        then(listener).should(times(TEST_COUNT)).invocationStarted(eq(description), anyLong(), anyLong());
+        then(listener).should(times(1)).invocationFinished(eq(description), anyLong(), anyLong(), anyLong());
+        then(listener).should(times(2)).invocationFailed(eq(description), anyLong(), anyLong(), anyLong(),
+                any(Exception.class));
+        then(listener).should(times(2)).attemptRetried(eq(description), anyLong(), anyLong(), anyInt(),
+                any(Exception.class));
+    }
+
+    @Test
+    public void shouldUpdateJmxMetrics() throws Throwable {
+        // given
+        rule.withJmxMetrics(true);
+        doNothing().when(statement).evaluate();
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        final long completed = InvocationMetrics.registered().getCompleted();
+        // when
+        rule.apply(statement, description).evaluate();
+        // then counters are updated synchronously
+        assertEquals("Completed", completed + TEST_PAR_COUNT, InvocationMetrics.registered().getCompleted());
+    }
+
+    @Test
+    public void shouldReportGarbageCollections() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        rule.reportTo(new PrintStream(report, true)).withGcMonitoring(true);
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertThat("Report", report.toString(), containsString("testMethod: gc "));
+        assertThat("Report", report.toString(), containsString("invocations overlapped collection"));
+    }
+
+    @Test
+    public void shouldWriteInvocationsToResultSink() throws Throwable {
+        // given
+        final File file = File.createTempFile("multitests", ".bin");
+        file.deleteOnExit();
+        new File(file.getPath() + ResultSink.NAMES_SUFFIX).deleteOnExit();
+        final ResultSink sink = ResultSink.create(file);
+        rule.withResultSink(sink);
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        sink.close();
+        // then
+        final ResultReader reader = new ResultReader(file);
+        assertEquals("Records", TEST_COUNT * TEST_PAR_COUNT, reader.getRecordCount());
+        assertEquals("Tests", Collections.singletonList("testMethod"), reader.getTestNames());
+    }
+
+    @Test
+    public void shouldStoreBaselineOfMeasuredTest() throws Throwable {
+        // given
+        final File file = File.createTempFile("multitests", ".properties");
+        file.deleteOnExit();
+        new File(file.getPath() + BaselineStore.LOCK_SUFFIX).deleteOnExit();
+        final BaselineStore store = new BaselineStore(file);
+        rule.withBaseline(store);
+        doNothing().when(statement).evaluate();
+        when(description.getDisplayName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        assertTrue("Baseline stored", new BaselineStore(file).hasBaseline(description));
+    }
+
+    @Test
+    public void shouldWriteSampledStacksOfProfiledTest() throws Throwable {
+        // given
+        final File directory = File.createTempFile("multitests", "");
+        assertTrue("Temporary file not deleted", directory.delete());
+        final SamplingProfiler profiler = new SamplingProfiler(directory).withInterval(1);
+        rule.withProfiler(profiler);
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Exception {
+                Thread.sleep(1);
+                return null;
+            }
+        }).when(statement).evaluate();
+        when(description.getClassName()).thenReturn("TestClass");
+        when(description.getMethodName()).thenReturn("testMethod");
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        // when
+        final Statement result = rule.apply(statement, description);
+        result.evaluate();
+        // then
+        final File file = profiler.fileFor(description);
+        // files are deleted in reverse order of registration
+        directory.deleteOnExit();
+        file.deleteOnExit();
+        assertThat("Not profiled", result, instanceOf(MultiTestsRule.ProfilingStatement.class));
+        assertEquals("Profile file", new File(directory, "TestClass.testMethod.collapsed"), file);
+        assertTrue("Profile not written", file.isFile());
+    }
+
+    @Test
+    public void shouldFailWhenLatencyLimitExceeded() throws Throwable {
+        // given
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Exception {
+                Thread.sleep(1);
+                return null;
+            }
+        }).when(statement).evaluate();
+        when(maxLatencyAnnotation.percentile()).thenReturn(90.0);
+        when(maxLatencyAnnotation.micros()).thenReturn(500L);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(MaxLatency.class)).thenReturn(maxLatencyAnnotation);
+        // when
+        try {
+            rule.apply(statement, description).evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertThat("Failure message", ex.getMessage(), containsString("p90.0 latency"));
+        }
+        then(statement).should(times(TEST_COUNT)).evaluate();
+    }
+
+    @Test
+    public void shouldPassWhenLatencyWithinLimit() throws Throwable {
+        // given
+        doNothing().when(statement).evaluate();
+        when(maxLatencyAnnotation.percentile()).thenReturn(99.0);
+        when(maxLatencyAnnotation.micros()).thenReturn(1000000L);
+        when(description.getAnnotation(MaxLatency.class)).thenReturn(maxLatencyAnnotation);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then single measured execution
+        then(statement).should().evaluate();
+    }
+
+    @Test
+    public void shouldFailWhenThroughputBelowLimit() throws Throwable {
+        // given
+        doNothing().when(statement).evaluate();
+        when(minThroughputAnnotation.opsPerSecond()).thenReturn(Double.MAX_VALUE);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        when(description.getAnnotation(MinThroughput.class)).thenReturn(minThroughputAnnotation);
+        // when
+        try {
+            rule.apply(statement, description).evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertThat("Failure message", ex.getMessage(), containsString("is below limit"));
+        }
+        then(statement).should(times(TEST_PAR_COUNT)).evaluate();
+    }
+
+    @Test
+    public void shouldFailWhenAllocationLimitExceeded() throws Throwable {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        final Statement allocating = new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                allocated = new byte[TEST_ALLOCATION];
+            }
+        };
+        when(maxAllocationAnnotation.bytesPerInvocation()).thenReturn((long) TEST_ALLOCATION / 2);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(MaxAllocation.class)).thenReturn(maxAllocationAnnotation);
+        // when
+        try {
+            rule.apply(allocating, description).evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertThat("Failure message", ex.getMessage(), containsString("bytes per invocation exceeds limit"));
+        }
+    }
+
+    @Test
+    public void shouldPassWhenInvocationsDoNotAllocate() throws Throwable {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        final AtomicLong executions = new AtomicLong();
+        final Statement notAllocating = new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                executions.incrementAndGet();
+            }
+        };
+        when(repeatAnnotation.value()).thenReturn(TEST_ALLOCATION);
+        when(maxAllocationAnnotation.warmup()).thenReturn(TEST_ALLOCATION / 2);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(MaxAllocation.class)).thenReturn(maxAllocationAnnotation);
+        // when
+        rule.apply(notAllocating, description).evaluate();
+        // then
+        assertEquals("Executions", TEST_ALLOCATION, executions.get());
+    }
+
+    @Test
+    public void shouldMeasureSingleExecutionWithDefaultWarmup() throws Throwable {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        doNothing().when(statement).evaluate();
+        final MaxAllocation defaults = getClass().getDeclaredMethod("allocationLimitWithDefaults")
+                .getAnnotation(MaxAllocation.class);
+        when(description.getAnnotation(MaxAllocation.class)).thenReturn(defaults);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        then(statement).should(times(1)).evaluate();
+    }
+
+    @Test
+    public void shouldMeasureLastRepetitionWhenWarmupIsLonger() throws Throwable {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        doNothing().when(statement).evaluate();
+        final MaxAllocation defaults = getClass().getDeclaredMethod("allocationLimitWithDefaults")
+                .getAnnotation(MaxAllocation.class);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(MaxAllocation.class)).thenReturn(defaults);
+        // when
+        rule.apply(statement, description).evaluate();
+        // then
+        then(statement).should(times(TEST_COUNT)).evaluate();
+    }
+
+    @Test
+    public void shouldFailWhenNothingMeasuredAfterWarmup() throws Throwable {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        doNothing().when(statement).evaluate();
+        // time budgeted test can end during warm-up
+        when(maxAllocationAnnotation.warmup()).thenReturn(Integer.MAX_VALUE);
+        when(repeatAnnotation.forMillis()).thenReturn(1L);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(MaxAllocation.class)).thenReturn(maxAllocationAnnotation);
+        // when
+        try {
+            rule.apply(statement, description).evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertThat("Failure message", ex.getMessage(), containsString("No invocations measured"));
+        }
+    }
+
+    @Test
+    public void shouldNotPrintWithoutReportStream() throws Throwable {
+        // given
+        doNothing().when(statement).evaluate();
+        when(repeatAnnotation.forMillis()).thenReturn(1L);
+        when(repeatAnnotation.warmup()).thenReturn(1);
+        when(parallelAnnotation.spinStart()).thenReturn(true);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        final PrintStream out = System.out;
+        final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        // when
+        try {
+            rule.apply(statement, description).evaluate();
+        } finally {
+            System.setOut(out);
+        }
+        // then
+        assertEquals("Printed", "", printed.toString());
+    }
+
+    @Test
+    public void shouldExtendParallelTimeoutByNestedRepeatTimeBudget() throws Throwable {
+        // given
+        doNothing().when(statement).evaluate();
+        when(repeatAnnotation.forMillis()).thenReturn(TEST_TIMEOUT * 2);
+        when(description.getAnnotation(Repeat.class)).thenReturn(repeatAnnotation);
+        when(description.getAnnotation(Parallel.class)).thenReturn(parallelAnnotation);
+        // when
+        rule.reportTo(new PrintStream(new ByteArrayOutputStream(), true)).apply(statement, description).evaluate();
+        // then no timeout
+        then(statement).should(atLeast(TEST_PAR_COUNT)).evaluate();
+    }
+
+    /** Holder of annotation with default values. */
+    @MaxAllocation(bytesPerInvocation = GENEROUS_ALLOCATION)
+    private void allocationLimitWithDefaults() {
+    }
+}
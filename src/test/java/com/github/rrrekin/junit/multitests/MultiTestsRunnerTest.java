@@ -0,0 +1,114 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class MultiTestsRunnerTest {
+
+    private static final int TEST_THREADS = 3;
+    private static final long TEST_SLEEP = 50;
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING_ISOLATED = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        RUNNING.set(0);
+        MAX_RUNNING.set(0);
+        MAX_RUNNING_ISOLATED.set(0);
+    }
+
+    @Test
+    public void shouldRunMethodsConcurrently() throws Throwable {
+        // when
+        final Result result = run(ConcurrentMethods.class);
+        // then
+        assertEquals("Executed methods", 5, result.getRunCount());
+        assertTrue(result.wasSuccessful());
+        assertEquals("Concurrently running methods", TEST_THREADS, MAX_RUNNING.get());
+        assertEquals("Methods running with isolated one", 1, MAX_RUNNING_ISOLATED.get());
+    }
+
+    @Test
+    public void shouldRunMethodsSequentiallyWithoutClassAnnotation() throws Throwable {
+        // when
+        final Result result = run(SequentialMethods.class);
+        // then
+        assertEquals("Executed methods", 2, result.getRunCount());
+        assertTrue(result.wasSuccessful());
+        assertEquals("Concurrently running methods", 1, MAX_RUNNING.get());
+    }
+
+    private static Result run(final Class<?> testClass) throws Exception {
+        return new JUnitCore().run(Request.runner(new MultiTestsRunner(testClass)));
+    }
+
+    private static void execute(final AtomicInteger maxRunning) throws InterruptedException {
+        update(maxRunning, RUNNING.incrementAndGet());
+        try {
+            Thread.sleep(TEST_SLEEP);
+            update(maxRunning, RUNNING.get());
+        } finally {
+            RUNNING.decrementAndGet();
+        }
+    }
+
+    private static void update(final AtomicInteger max, final int value) {
+        int current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    @Parallel(TEST_THREADS)
+    public static class ConcurrentMethods {
+        @Test
+        public void test1() throws Exception {
+            execute(MAX_RUNNING);
+        }
+
+        @Test
+        public void test2() throws Exception {
+            execute(MAX_RUNNING);
+        }
+
+        @Test
+        public void test3() throws Exception {
+            execute(MAX_RUNNING);
+        }
+
+        @Test
+        public void test4() throws Exception {
+            execute(MAX_RUNNING);
+        }
+
+        @Test
+        @Isolated
+        public void test5() throws Exception {
+            execute(MAX_RUNNING_ISOLATED);
+        }
+    }
+
+    public static class SequentialMethods {
+        @Test
+        public void test1() throws Exception {
+            execute(MAX_RUNNING);
+        }
+
+        @Test
+        public void test2() throws Exception {
+            execute(MAX_RUNNING);
+        }
+    }
+}
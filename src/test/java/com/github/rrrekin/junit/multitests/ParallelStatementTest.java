@@ -2,6 +2,7 @@ package com.github.rrrekin.junit.multitests;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.Description;
 import org.junit.runner.RunWith;
 import org.junit.runners.model.Statement;
 import org.mockito.Mock;
@@ -9,12 +10,29 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 
 /**
@@ -24,6 +42,9 @@ import static org.mockito.Mockito.times;
 public class ParallelStatementTest {
     private static final int TEST_COUNT = 42;
     private static final long TEST_TIMEOUT = 100;
+    private static final int TEST_THREADS = 4;
+    private static final long TEST_INVOCATIONS = 10000;
+    private static final long TEST_RATE = 1000;
 
     private MultiTestsRule.ParallelStatement statement;
 
@@ -84,4 +105,345 @@ public class ParallelStatementTest {
         // then
         then(origStatement).should(times(TEST_COUNT)).evaluate();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldStartThreadsOnSpinGateAndRecordStartSkew() throws Throwable {
+        // given
+        final Measurement measurement = new Measurement(TEST_THREADS);
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, TEST_THREADS, TEST_TIMEOUT * 10, origStatement,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, null).withSpinStart(true).withStartSkew(measurement);
+        // when
+        statement.evaluate();
+        // then
+        then(origStatement).should(times(TEST_THREADS)).evaluate();
+        assertTrue("Start skew not recorded", measurement.getStartSkew() >= 0);
+    }
+
+    @Test
+    public void shouldRunInVirtualModeAlsoWithoutVirtualThreadsSupport() throws Throwable {
+        // given
+        statement = new MultiTestsRule.ParallelStatement(TEST_COUNT, TEST_COUNT, TEST_TIMEOUT, origStatement,
+                WorkerPool.shared(), ExecutionMode.VIRTUAL, null);
+        // when
+        statement.evaluate();
+        // then
+        then(origStatement).should(times(TEST_COUNT)).evaluate();
+    }
+
+    @Test(expected = AssertionError.class)
+    public void shouldFailInVirtualModeAfterFirstAssertion() throws Throwable {
+        //given
+        statement = new MultiTestsRule.ParallelStatement(TEST_COUNT, TEST_COUNT, TEST_TIMEOUT, origStatement,
+                WorkerPool.shared(), ExecutionMode.VIRTUAL, null);
+        doNothing().doNothing().doThrow(new AssertionError()).when(origStatement).evaluate();
+        // when
+        statement.evaluate();
+    }
+
+    @Test
+    public void shouldUseVirtualThreadsWhenSupported() throws Throwable {
+        // given
+        assumeTrue(VirtualThreads.isAvailable());
+        final AtomicInteger virtualThreads = new AtomicInteger();
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Exception {
+                if (Boolean.TRUE.equals(Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))) {
+                    virtualThreads.incrementAndGet();
+                }
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        statement = new MultiTestsRule.ParallelStatement(TEST_COUNT, TEST_COUNT, TEST_TIMEOUT, origStatement,
+                WorkerPool.shared(), ExecutionMode.VIRTUAL, null);
+        // when
+        statement.evaluate();
+        // then
+        assertEquals("Executions on virtual threads", TEST_COUNT, virtualThreads.get());
+    }
+
+    @Test
+    public void shouldExecuteInvocationsOnConfiguredNumberOfThreads() throws Throwable {
+        // given
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                threads.add(Thread.currentThread());
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, TEST_INVOCATIONS, TEST_TIMEOUT * 100,
+                origStatement, WorkerPool.shared(), ExecutionMode.PLATFORM, null);
+        // when
+        statement.evaluate();
+        // then
+        then(origStatement).should(times((int) TEST_INVOCATIONS)).evaluate();
+        assertTrue("Too many threads used: " + threads.size(), threads.size() <= TEST_THREADS);
+    }
+
+    @Test
+    public void shouldCancelRemainingInvocationsAfterFirstFailureInFailFastMode() throws Throwable {
+        // given
+        final CountDownLatch sleeping = new CountDownLatch(TEST_COUNT - 1);
+        final CountDownLatch interrupted = new CountDownLatch(TEST_COUNT - 1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Exception failure = new Exception();
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Exception {
+                if (calls.getAndIncrement() == 0) {
+                    // fail when all other invocations are running
+                    sleeping.await(TEST_TIMEOUT * 10, TimeUnit.MILLISECONDS);
+                    throw failure;
+                }
+                try {
+                    sleeping.countDown();
+                    Thread.sleep(TEST_TIMEOUT * 100);
+                } catch (final InterruptedException ignored) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        statement = new MultiTestsRule.ParallelStatement(TEST_COUNT, TEST_COUNT, TEST_TIMEOUT * 100, origStatement,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, null).withFailFast(true);
+        final long start = System.nanoTime();
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final Exception ex) {
+            // then
+            assertSame("Failure", failure, ex);
+        }
+        assertTrue("Not failed fast", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT * 10));
+        assertTrue("Not all threads interrupted", interrupted.await(TEST_TIMEOUT * 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldInterruptThreadsOnTimeout() throws Throwable {
+        // given
+        final CountDownLatch interrupted = new CountDownLatch(TEST_COUNT);
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                try {
+                    Thread.sleep(TEST_TIMEOUT * 100);
+                } catch (final InterruptedException ignored) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final TimeoutException ignored) {
+        }
+        // then
+        assertTrue("Not all threads interrupted", interrupted.await(TEST_TIMEOUT * 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldExecuteUntilTimeBudgetElapses() throws Throwable {
+        // given
+        final AtomicLong executions = new AtomicLong();
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, Long.MAX_VALUE, TEST_TIMEOUT, new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                executions.incrementAndGet();
+            }
+        }, WorkerPool.shared(), ExecutionMode.PLATFORM, null).withDuration(TEST_TIMEOUT * 2);
+        final long start = System.nanoTime();
+        // when
+        statement.evaluate();
+        // then
+        assertTrue("Finished too early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT * 2));
+        assertTrue("Not executed", executions.get() > TEST_THREADS);
+    }
+
+    @Test
+    public void shouldStartInvocationsAtLoadProfileRate() throws Throwable {
+        // given
+        final AtomicLong executions = new AtomicLong();
+        final Measurement measurement = new Measurement(TEST_THREADS);
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, Long.MAX_VALUE, TEST_TIMEOUT, new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                executions.incrementAndGet();
+            }
+        }, WorkerPool.shared(), ExecutionMode.PLATFORM, measurement)
+                .withLoadProfile(new ArrivalSchedule(TEST_RATE, 0, 0, TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT)));
+        final long start = System.nanoTime();
+        // when
+        statement.evaluate();
+        // then
+        assertEquals("Executions", TEST_RATE * TEST_TIMEOUT / 1000, executions.get());
+        assertEquals("Measured executions", executions.get(), measurement.getLatencies().getCount());
+        assertTrue("Finished too early",
+                System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT) * 9 / 10);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectUnlimitedLoadProfile() throws Throwable {
+        // given
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, Long.MAX_VALUE, TEST_TIMEOUT, origStatement,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, null).withLoadProfile(new ArrivalSchedule(TEST_RATE, 0, 0, 0));
+        // when
+        statement.evaluate();
+    }
+
+    @Test
+    public void shouldStartEveryRepetitionInLockstep() throws Throwable {
+        // given
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger overtakes = new AtomicInteger();
+        final ThreadLocal<int[]> round = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1];
+            }
+        };
+        final Statement repeated = new MultiTestsRule.RepeatStatement(TEST_COUNT, new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                // all threads have to complete previous round before any of them starts next one
+                if (completed.get() < round.get()[0]++ * TEST_THREADS) {
+                    overtakes.incrementAndGet();
+                }
+                completed.incrementAndGet();
+            }
+        }).withLockstep(new Lockstep(TEST_THREADS, TEST_COUNT, 0));
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, TEST_THREADS, TEST_TIMEOUT * 100, repeated,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, null);
+        // when
+        statement.evaluate();
+        // then
+        assertEquals("Executions", TEST_COUNT * TEST_THREADS, completed.get());
+        assertEquals("Rounds started before previous one completed", 0, overtakes.get());
+    }
+
+    @Test
+    public void shouldEndAllLockstepThreadsAfterFailedRound() throws Throwable {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final AssertionError failure = new AssertionError();
+        final Statement repeated = new MultiTestsRule.RepeatStatement(TEST_COUNT, new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (executions.incrementAndGet() == TEST_THREADS * 2) {
+                    throw failure;
+                }
+            }
+        }).withLockstep(new Lockstep(TEST_THREADS, TEST_COUNT, 0));
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, TEST_THREADS, TEST_TIMEOUT * 100, repeated,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, null);
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertSame("Failure", failure, ex);
+        }
+        assertEquals("Executions", TEST_THREADS * 2, executions.get());
+    }
+
+    @Test
+    public void shouldSweepPowersOfTwoUpToMaximumThreads() throws Throwable {
+        // when
+        final int[] levels = MultiTestsRule.ScalingSweepStatement.levels(12, 6);
+        // then
+        assertArrayEquals("Levels", new int[]{1, 2, 4, 6, 8, 12}, levels);
+    }
+
+    @Test
+    public void shouldFailSweepBelowMinimumEfficiency() throws Throwable {
+        // given
+        final Object lock = new Object();
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final Statement serialized = new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                synchronized (lock) {
+                    Thread.sleep(1);
+                }
+            }
+        };
+        final Statement sweep = new MultiTestsRule.ScalingSweepStatement(TEST_THREADS, TEST_TIMEOUT, serialized,
+                WorkerPool.shared(), ExecutionMode.PLATFORM, Description.EMPTY, new PrintStream(report, true))
+                .withWarmup(0)
+                .withMinEfficiency(0.9, 0);
+        // when
+        try {
+            sweep.evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertTrue("Unexpected failure: " + ex.getMessage(), ex.getMessage().contains("Parallel efficiency"));
+        }
+        assertTrue("Levels not reported: " + report, report.toString().contains(TEST_THREADS + " threads"));
+        assertTrue("Model not reported: " + report, report.toString().contains("USL contention"));
+    }
+
+    @Test
+    public void shouldDumpUnfinishedThreadsOnTimeout() throws Throwable {
+        // given
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                try {
+                    Thread.sleep(TEST_TIMEOUT * 100);
+                } catch (final InterruptedException ignored) {
+                }
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        statement = new MultiTestsRule.ParallelStatement(TEST_THREADS, TEST_TIMEOUT, origStatement);
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final TimeoutException ex) {
+            // then
+            assertTrue("Thread state not dumped: " + ex.getMessage(), ex.getMessage().contains("TIMED_WAITING"));
+            assertTrue("Stack not dumped: " + ex.getMessage(), ex.getMessage().contains("java.lang.Thread.sleep"));
+        }
+    }
+
+    @Test
+    public void shouldFailFastOnDeadlock() throws Throwable {
+        // given
+        final Lock[] locks = {new ReentrantLock(), new ReentrantLock()};
+        final AtomicInteger threadIndex = new AtomicInteger();
+        final CountDownLatch firstLocked = new CountDownLatch(2);
+        statement = new MultiTestsRule.ParallelStatement(2, TEST_TIMEOUT * 100, new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                final int index = threadIndex.getAndIncrement();
+                locks[index].lockInterruptibly();
+                try {
+                    firstLocked.countDown();
+                    firstLocked.await();
+                    locks[1 - index].lockInterruptibly();
+                    locks[1 - index].unlock();
+                } finally {
+                    locks[index].unlock();
+                }
+            }
+        });
+        final long start = System.nanoTime();
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final AssertionError ex) {
+            // then
+            assertTrue("Deadlock not reported: " + ex.getMessage(), ex.getMessage().contains("Deadlock detected"));
+            assertTrue("Lock owner not dumped: " + ex.getMessage(), ex.getMessage().contains("owned by"));
+        }
+        assertTrue("Not failed fast", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT * 50));
+    }
+}
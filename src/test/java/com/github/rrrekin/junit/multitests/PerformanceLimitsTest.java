@@ -0,0 +1,75 @@
+/*
+ * Apache License, Version 2.0
+ *
+ * You may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Example usages of @MaxLatency, @MinThroughput and @MaxAllocation annotations.
+ *
+ * @author Michal Rudewicz <michal.rudewicz@gmail.com>
+ */
+public class PerformanceLimitsTest {
+
+    private static final Map<Integer, Integer> map = new ConcurrentHashMap<Integer, Integer>();
+    private static final AtomicLong counter = new AtomicLong();
+
+    @Rule public MultiTestsRule multiTests = new MultiTestsRule();
+
+    @Test
+    @Repeat(1000)
+    @MaxLatency(percentile = 99, micros = 100000)
+    public void test1() throws Exception {
+        map.put(map.size(), map.size());
+    }
+
+    @Test
+    @Parallel(invocations = 100000, threads = 4)
+    @MinThroughput(opsPerSecond = 1000)
+    public void test2() throws Exception {
+        map.get(42);
+    }
+
+    @Ignore("Will fail as every execution takes at least 1ms")
+    @Test
+    @Repeat(100)
+    @MaxLatency(percentile = 50, micros = 500)
+    public void test3() throws Exception {
+        Thread.sleep(1);
+    }
+
+    @Test
+    @Repeat(10000)
+    @MaxAllocation(bytesPerInvocation = 64, warmup = 1000)
+    public void test4() throws Exception {
+        counter.incrementAndGet();
+    }
+
+    @Ignore("Will fail as every execution allocates new array")
+    @Test
+    @Repeat(100)
+    @MaxAllocation(bytesPerInvocation = 64)
+    public void test5() throws Exception {
+        map.put(map.size(), new int[100].length);
+    }
+}
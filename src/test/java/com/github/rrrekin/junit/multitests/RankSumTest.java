@@ -0,0 +1,72 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class RankSumTest {
+
+    private static final int SAMPLES = 1000;
+    private static final long MEAN_NANOS = 100000;
+    private static final long DEVIATION_NANOS = 10000;
+    private static final double DELTA = 1e-3;
+
+    @Test
+    public void shouldComputeNormalUpperTail() throws Exception {
+        assertEquals("z=0", 0.5, RankSum.upperTail(0), DELTA);
+        assertEquals("z=1.96", 0.025, RankSum.upperTail(1.96), DELTA);
+        assertEquals("z=-1.96", 0.975, RankSum.upperTail(-1.96), DELTA);
+    }
+
+    @Test
+    public void shouldNotDetectDifferenceOfSameDistribution() throws Exception {
+        // given
+        final Random random = new Random(1);
+        final LatencyHistogram baseline = sample(random, MEAN_NANOS);
+        final LatencyHistogram current = sample(random, MEAN_NANOS);
+        // when
+        final RankSum comparison = new RankSum(baseline, current);
+        // then
+        assertTrue("P-value " + comparison.getPValue(), comparison.getPValue() > 0.01);
+        assertEquals("Effect size", 0.5, comparison.getSuperiority(), 0.05);
+    }
+
+    @Test
+    public void shouldDetectSlowdown() throws Exception {
+        // given
+        final Random random = new Random(1);
+        final LatencyHistogram baseline = sample(random, MEAN_NANOS);
+        final LatencyHistogram current = sample(random, MEAN_NANOS + DEVIATION_NANOS);
+        // when
+        final RankSum comparison = new RankSum(baseline, current);
+        // then
+        assertTrue("P-value " + comparison.getPValue(), comparison.getPValue() < 1e-6);
+        assertTrue("Effect size " + comparison.getSuperiority(), comparison.getSuperiority() > 0.71);
+    }
+
+    @Test
+    public void shouldNotReportSpeedupAsSlowdown() throws Exception {
+        // given
+        final Random random = new Random(1);
+        final LatencyHistogram baseline = sample(random, MEAN_NANOS + DEVIATION_NANOS);
+        final LatencyHistogram current = sample(random, MEAN_NANOS);
+        // when
+        final RankSum comparison = new RankSum(baseline, current);
+        // then
+        assertTrue("P-value " + comparison.getPValue(), comparison.getPValue() > 0.99);
+    }
+
+    private static LatencyHistogram sample(final Random random, final long mean) {
+        final LatencyHistogram result = new LatencyHistogram();
+        for (int i = 0; i < SAMPLES; i++) {
+            result.record(mean + (long) (random.nextGaussian() * DEVIATION_NANOS));
+        }
+        return result;
+    }
+}
@@ -7,6 +7,10 @@ import org.junit.runners.model.Statement;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.doNothing;
@@ -19,6 +23,7 @@ import static org.mockito.Mockito.times;
 public class RepeatStatementTest {
 
     private static final int TEST_COUNT = 42;
+    private static final long TEST_DURATION = 50;
 
     private MultiTestsRule.RepeatStatement statement;
 
@@ -64,4 +69,57 @@ public class RepeatStatementTest {
         // then
         then(origStatement).should(times(3)).evaluate();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMeasureEveryRepetition() throws Throwable {
+        // given
+        final Measurement measurement = new Measurement(1);
+        statement = new MultiTestsRule.RepeatStatement(TEST_COUNT, origStatement, measurement);
+        // when
+        statement.evaluate();
+        // then
+        assertEquals("Measured repetitions", TEST_COUNT, measurement.getLatencies().getCount());
+    }
+
+    @Test
+    public void shouldNotMeasureWarmupRepetitions() throws Throwable {
+        // given
+        final Measurement measurement = new Measurement(1);
+        statement = new MultiTestsRule.RepeatStatement(TEST_COUNT, origStatement, measurement).withWarmup(TEST_COUNT);
+        final long start = System.nanoTime();
+        // when
+        statement.evaluate();
+        // then
+        then(origStatement).should(times(2 * TEST_COUNT)).evaluate();
+        assertEquals("Measured repetitions", TEST_COUNT, measurement.getLatencies().getCount());
+        assertTrue("Warm-up measured", measurement.measuredNanos(start, System.nanoTime()) < System.nanoTime() - start);
+    }
+
+    @Test
+    public void shouldWarmUpUntilSteadyStateOrTimeCap() throws Throwable {
+        // given
+        final Measurement measurement = new Measurement(1);
+        statement = new MultiTestsRule.RepeatStatement(TEST_COUNT, origStatement, measurement)
+                .withAdaptiveWarmup(TEST_DURATION);
+        // when
+        statement.evaluate();
+        // then
+        assertEquals("Measured repetitions", TEST_COUNT, measurement.getLatencies().getCount());
+        assertTrue("No warm-up", measurement.getWarmupInvocations() > 0);
+        then(origStatement).should(times((int) measurement.getWarmupInvocations() + TEST_COUNT)).evaluate();
+    }
+
+    @Test
+    public void shouldRepeatUntilTimeBudgetElapses() throws Throwable {
+        // given
+        final Measurement measurement = new Measurement(1);
+        statement = new MultiTestsRule.RepeatStatement(TEST_COUNT, origStatement, measurement)
+                .withDuration(TEST_DURATION);
+        final long start = System.nanoTime();
+        // when
+        statement.evaluate();
+        // then
+        assertTrue("Finished too early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(TEST_DURATION));
+        assertTrue("Not repeated", measurement.getLatencies().getCount() > 0);
+    }
+}
@@ -48,6 +48,8 @@ public class RepeatTest {
     private static int counter1 = 0;
     private static int counter2 = 0;
     private static int counter3 = 0;
+    private static long counter4 = 0;
+    private static int counter5 = 0;
 
     @Rule public MultiTestsRule multiTests = new MultiTestsRule();
 
@@ -71,4 +73,18 @@ public class RepeatTest {
     public void test3() throws Exception {
         assertFalse("Fails for " + counter3, counter3++ % 7 == 6);
     }
-}
\ No newline at end of file
+
+    @Test
+    @Repeat(forMillis = 100) // Repeated as many times as possible in 100ms, achieved count is reported
+    public void test4() throws Exception {
+        counter4++;
+        assertTrue("Fails for " + counter4, counter4 > 0);
+    }
+
+    @Test
+    @Repeat(value = 1000, warmup = 1000) // Mean latency with its error and throughput of last 1000 runs are reported
+    public void test5() throws Exception {
+        counter5++;
+        Blackhole.consume(Math.log(counter5));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class ResourceUsageTest {
+
+    private static final int SLEEP_MS = 20;
+    private static final int ALLOCATIONS = 1000;
+
+    private ResourceUsage usage;
+    private long[] snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        usage = new ResourceUsage();
+        snapshot = new long[ResourceUsage.SNAPSHOT_SIZE];
+    }
+
+    @Test
+    public void shouldMeasureCpuTime() throws Exception {
+        // given
+        assumeTrue(ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported());
+        // when
+        usage.begin(snapshot);
+        final long start = System.nanoTime();
+        long counter = 0;
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLEEP_MS)) {
+            counter++;
+        }
+        usage.end(snapshot);
+        // then
+        assertTrue("Not counted " + counter, usage.getCpuNanos() > 0);
+        assertEquals("Invocations", 1, usage.getInvocations());
+    }
+
+    @Test
+    public void shouldMeasureAllocatedBytes() throws Exception {
+        // given
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        final List<Object> objects = new ArrayList<Object>(ALLOCATIONS);
+        // when
+        usage.begin(snapshot);
+        for (int i = 0; i < ALLOCATIONS; i++) {
+            objects.add(new long[ALLOCATIONS]);
+        }
+        usage.end(snapshot);
+        // then
+        assertTrue("Allocated " + usage.getAllocatedBytes() + " for " + objects.size(),
+                usage.getAllocatedBytes() >= ALLOCATIONS * ALLOCATIONS * 8L);
+    }
+
+    @Test
+    public void shouldCountWaiting() throws Exception {
+        // given
+        assumeTrue(ManagementFactory.getThreadMXBean().isThreadContentionMonitoringEnabled());
+        // when
+        usage.begin(snapshot);
+        Thread.sleep(SLEEP_MS);
+        usage.end(snapshot);
+        // then
+        assertEquals("Waited count", 1, usage.getWaitedCount());
+        assertTrue("Waited time " + usage.getWaitedMillis(), usage.getWaitedMillis() >= SLEEP_MS / 2);
+    }
+
+    @Test
+    public void shouldCountBlockingOnMonitor() throws Exception {
+        // given
+        assumeTrue(ManagementFactory.getThreadMXBean().isThreadContentionMonitoringEnabled());
+        final Object lock = new Object();
+        final CountDownLatch locked = new CountDownLatch(1);
+        final Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    locked.countDown();
+                    try {
+                        Thread.sleep(SLEEP_MS);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        // when
+        usage.begin(snapshot);
+        synchronized (lock) {
+            usage.end(snapshot);
+        }
+        holder.join();
+        // then
+        assertEquals("Blocked count", 1, usage.getBlockedCount());
+    }
+}
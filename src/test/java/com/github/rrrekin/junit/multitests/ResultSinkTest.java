@@ -0,0 +1,95 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.AssumptionViolatedException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class ResultSinkTest {
+
+    private static final int RECORDS = 100000;
+    private static final long DURATION = 1234;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private ResultSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.newFile("results.bin");
+        sink = ResultSink.create(file);
+    }
+
+    @Test
+    public void shouldWriteRecordsReadableByReader() throws Exception {
+        // given
+        final int first = sink.register("test1");
+        final int second = sink.register("test \"2\"");
+        final long start = System.nanoTime();
+        // when
+        sink.write(first, 0, 0, start, DURATION, null);
+        sink.write(second, 1, 1, start, DURATION, new AssertionError());
+        sink.close();
+        // then
+        final ResultReader reader = new ResultReader(file);
+        assertEquals("Record count", 2, reader.getRecordCount());
+        assertEquals("Test names", 2, reader.getTestNames().size());
+        final StringWriter csv = new StringWriter();
+        reader.exportCsv(csv);
+        assertThat("CSV", csv.toString(), containsString("\"test1\",0,0,"));
+        assertThat("CSV", csv.toString(), containsString("\"test \"\"2\"\"\",1,1,"));
+        assertThat("CSV", csv.toString(), containsString("," + DURATION + ",failure\n"));
+        final StringWriter json = new StringWriter();
+        reader.exportJson(json);
+        assertThat("JSON", json.toString(), containsString("\"tests\":[\"test1\",\"test \\\"2\\\"\"]"));
+        assertThat("JSON", json.toString(), containsString("\"test\":1,\"thread\":1,\"iteration\":1,"));
+        assertThat("JSON", json.toString(), containsString("\"durationNanos\":" + DURATION + ",\"outcome\":\"success\"}"));
+    }
+
+    @Test
+    public void shouldMapFurtherRegionsOfFile() throws Exception {
+        // given
+        final int test = sink.register("test");
+        // when
+        for (int i = 0; i < RECORDS; i++) {
+            sink.write(test, 0, i, System.nanoTime(), i, null);
+        }
+        sink.close();
+        // then
+        final ResultReader reader = new ResultReader(file);
+        assertEquals("Record count", RECORDS, reader.getRecordCount());
+        final StringWriter csv = new StringWriter();
+        reader.exportCsv(csv);
+        assertThat("Last record", csv.toString(), containsString(",0," + (RECORDS - 1) + ","));
+    }
+
+    @Test
+    public void shouldDropRecordsAfterClose() throws Exception {
+        // given
+        sink.close();
+        // when
+        sink.write(0, 0, 0, System.nanoTime(), DURATION, null);
+        // then
+        assertEquals("Record count", 0, new ResultReader(file).getRecordCount());
+    }
+
+    @Test
+    public void shouldMapFailuresToOutcomes() throws Exception {
+        assertEquals("Success", ResultSink.SUCCESS, ResultSink.outcomeOf(null));
+        assertEquals("Failure", ResultSink.FAILURE, ResultSink.outcomeOf(new AssertionError()));
+        assertEquals("Error", ResultSink.ERROR, ResultSink.outcomeOf(new IllegalStateException()));
+        assertEquals("Skipped", ResultSink.SKIPPED, ResultSink.outcomeOf(new AssumptionViolatedException("skip")));
+    }
+}
@@ -5,10 +5,19 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.model.Statement;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 
@@ -19,6 +28,9 @@ import static org.mockito.Mockito.times;
 public class RetryStatementTest {
 
     private static final int TEST_COUNT = 42;
+    private static final int TEST_ATTEMPTS = 3;
+    private static final long TEST_DELAY = 20;
+    private static final long TEST_TIMEOUT = 10000;
 
     private MultiTestsRule.RetryStatement statement;
 
@@ -62,4 +74,96 @@ public class RetryStatementTest {
         // then
         then(origStatement).should(times(TEST_COUNT)).evaluate();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldStartHedgedAttemptWhenPreviousDoesNotFinishInDelay() throws Throwable {
+        // given
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                try {
+                    Thread.sleep(TEST_TIMEOUT);
+                } catch (final InterruptedException ignored) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        }).doNothing().when(origStatement).evaluate();
+        statement = new MultiTestsRule.RetryStatement(TEST_COUNT, origStatement)
+                .withHedging(TEST_ATTEMPTS, TEST_DELAY, WorkerPool.shared());
+        final long start = System.nanoTime();
+        // when
+        statement.evaluate();
+        // then
+        assertTrue("Hedged attempt not started", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TEST_TIMEOUT));
+        assertTrue("Slow attempt not interrupted", interrupted.await(TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        then(origStatement).should(times(2)).evaluate();
+    }
+
+    @Test
+    public void shouldRunConcurrentAttemptsAtOnce() throws Throwable {
+        // given
+        final CountDownLatch started = new CountDownLatch(TEST_ATTEMPTS);
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws InterruptedException {
+                started.countDown();
+                // succeed only when all attempts run at the same time
+                if (!started.await(TEST_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    throw new AssertionError("Attempts not concurrent");
+                }
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        statement = new MultiTestsRule.RetryStatement(TEST_ATTEMPTS, origStatement)
+                .withHedging(TEST_ATTEMPTS, 0, WorkerPool.shared());
+        // when
+        statement.evaluate();
+        // then
+        assertTrue("Not all attempts started", started.getCount() == 0);
+    }
+
+    @Test
+    public void shouldNotRunHedgedAttemptOnEvaluatingThreadWhenPoolIsSaturated() throws Throwable {
+        // given
+        final Thread evaluating = Thread.currentThread();
+        final AtomicBoolean onEvaluatingThread = new AtomicBoolean();
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws InterruptedException {
+                onEvaluatingThread.compareAndSet(false, Thread.currentThread() == evaluating);
+                Thread.sleep(TEST_DELAY * 5);
+                return null;
+            }
+        }).when(origStatement).evaluate();
+        final WorkerPool pool = new WorkerPool(0, 1, TEST_TIMEOUT);
+        statement = new MultiTestsRule.RetryStatement(TEST_COUNT, origStatement)
+                .withHedging(TEST_ATTEMPTS, TEST_DELAY, pool);
+        // when
+        try {
+            statement.evaluate();
+        } finally {
+            pool.shutdown();
+        }
+        // then
+        assertFalse("Attempt executed by evaluating thread", onEvaluatingThread.get());
+        then(origStatement).should(times(1)).evaluate();
+    }
+
+    @Test
+    public void shouldFailWhenAllHedgedAttemptsFail() throws Throwable {
+        //given
+        doThrow(Exception.class).when(origStatement).evaluate();
+        statement = new MultiTestsRule.RetryStatement(TEST_COUNT, origStatement)
+                .withHedging(TEST_ATTEMPTS, 0, WorkerPool.shared());
+        // when
+        try {
+            statement.evaluate();
+            fail("Unexpected success");
+        } catch (final Exception ignored) {
+        }
+        // then
+        then(origStatement).should(times(TEST_COUNT)).evaluate();
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class ScalabilityTest {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final double SINGLE_THREAD_THROUGHPUT = 1000;
+    private static final double CONTENTION = 0.05;
+    private static final double COHERENCY = 0.002;
+    private static final double PRECISION = 1e-9;
+
+    @Test
+    public void shouldFitUniversalScalabilityLaw() throws Exception {
+        // when
+        final Scalability scalability = new Scalability(THREADS, throughput(CONTENTION, COHERENCY));
+        // then
+        assertEquals("Contention", CONTENTION, scalability.getContention(), PRECISION);
+        assertEquals("Coherency", COHERENCY, scalability.getCoherency(), PRECISION);
+        assertEquals("Peak", Math.sqrt((1 - CONTENTION) / COHERENCY), scalability.getPeakThreads(), PRECISION);
+    }
+
+    @Test
+    public void shouldFitAmdahlsLawWithoutCoherencyCost() throws Exception {
+        // when
+        final Scalability scalability = new Scalability(THREADS, throughput(CONTENTION, 0));
+        // then
+        assertEquals("Contention", CONTENTION, scalability.getContention(), PRECISION);
+        assertEquals("Coherency", 0, scalability.getCoherency(), PRECISION);
+        assertTrue("Peak", Double.isInfinite(scalability.getPeakThreads()));
+    }
+
+    @Test
+    public void shouldFitSingleParallelLevel() throws Exception {
+        // when
+        final Scalability scalability = new Scalability(new int[]{1, 2},
+                new double[]{SINGLE_THREAD_THROUGHPUT, SINGLE_THREAD_THROUGHPUT});
+        // then
+        assertEquals("Contention", 1, scalability.getContention(), PRECISION);
+        assertEquals("Efficiency", 0.5, scalability.getEfficiency(2), PRECISION);
+    }
+
+    @Test
+    public void shouldComputeEfficiencyOfMeasuredLevels() throws Exception {
+        // when
+        final Scalability scalability = new Scalability(THREADS, throughput(CONTENTION, COHERENCY));
+        // then
+        assertEquals("Single thread efficiency", 1, scalability.getEfficiency(1), PRECISION);
+        assertEquals("Efficiency", 1 / (1 + CONTENTION * 7 + COHERENCY * 56), scalability.getEfficiency(8), PRECISION);
+        assertTrue("Not measured level", Double.isNaN(scalability.getEfficiency(3)));
+    }
+
+    private static double[] throughput(final double contention, final double coherency) {
+        final double[] result = new double[THREADS.length];
+        for (int i = 0; i < THREADS.length; i++) {
+            final double n = THREADS[i];
+            result[i] = SINGLE_THREAD_THROUGHPUT * n / (1 + contention * (n - 1) + coherency * n * (n - 1));
+        }
+        return result;
+    }
+}
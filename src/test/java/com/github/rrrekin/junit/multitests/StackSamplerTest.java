@@ -0,0 +1,170 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.model.Statement;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class StackSamplerTest {
+
+    private static final long TEST_TIMEOUT = 10000;
+    private static final int TEST_SAMPLES = 5;
+    private static final String BLOCKED_STACK = BlockingStatement.class.getName() + ".evaluate;"
+            + "[BLOCKED on java.lang.Object]";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Object lock = new Object();
+
+    @Test
+    public void shouldSampleFramesAboveProfiledStatementWithLock() throws Throwable {
+        // given
+        final File file = folder.newFile("test.collapsed");
+        final StackSampler sampler = new StackSampler(file, 1, SamplingProfiler.DEFAULT_MAX_STACKS,
+                SamplingProfiler.DEFAULT_MAX_DEPTH);
+        final Thread thread = new Thread(new ProfiledTest(sampler));
+        // when
+        synchronized (lock) {
+            thread.start();
+            awaitBlocked(thread);
+            for (int i = 0; i < TEST_SAMPLES; i++) {
+                sampler.sample();
+            }
+        }
+        thread.join(TEST_TIMEOUT);
+        sampler.stop();
+        // then
+        assertEquals("Samples of blocked thread", TEST_SAMPLES, sampler.getCount(BLOCKED_STACK));
+        assertEquals("All samples", TEST_SAMPLES, sampler.getSamples());
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            assertEquals("Written stack", BLOCKED_STACK + " " + TEST_SAMPLES, reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void shouldCountStacksAboveLimitTogether() throws Throwable {
+        // given
+        final StackSampler sampler = new StackSampler(folder.newFile("test.collapsed"), 1, 0, 1);
+        final Thread thread = new Thread(new ProfiledTest(sampler));
+        // when
+        synchronized (lock) {
+            thread.start();
+            awaitBlocked(thread);
+            sampler.sample();
+        }
+        thread.join(TEST_TIMEOUT);
+        // then
+        assertEquals("Samples of other stacks", 1, sampler.getCount(SamplingProfiler.OTHER_STACKS));
+        assertEquals("Samples of blocked thread", 0, sampler.getCount(BLOCKED_STACK));
+    }
+
+    @Test
+    public void shouldSampleInBackgroundUntilStopped() throws Throwable {
+        // given
+        final StackSampler sampler = new StackSampler(folder.newFile("test.collapsed"), 1, 1, 1);
+        final Thread thread = new Thread(new ProfiledTest(sampler));
+        // when
+        synchronized (lock) {
+            thread.start();
+            awaitBlocked(thread);
+            sampler.start();
+            final long deadline = System.currentTimeMillis() + TEST_TIMEOUT;
+            while (sampler.getSamples() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            sampler.stop();
+        }
+        thread.join(TEST_TIMEOUT);
+        // then
+        assertTrue("Not sampled", sampler.getCount(BLOCKED_STACK) > 0);
+    }
+
+    @Test
+    public void shouldNotSampleThreadsOfOtherTests() throws Throwable {
+        // given
+        final StackSampler sampler = new StackSampler(folder.newFile("test.collapsed"), 1,
+                SamplingProfiler.DEFAULT_MAX_STACKS, SamplingProfiler.DEFAULT_MAX_DEPTH);
+        final StackSampler otherSampler = new StackSampler(folder.newFile("other.collapsed"), 1,
+                SamplingProfiler.DEFAULT_MAX_STACKS, SamplingProfiler.DEFAULT_MAX_DEPTH);
+        final Thread thread = new Thread(new ProfiledTest(otherSampler));
+        // when
+        synchronized (lock) {
+            thread.start();
+            awaitBlocked(thread);
+            sampler.sample();
+        }
+        thread.join(TEST_TIMEOUT);
+        // then
+        assertEquals("Samples of other test", 0, sampler.getSamples());
+    }
+
+    @Test
+    public void shouldUnregisterEndedThreads() throws Throwable {
+        // given
+        final StackSampler sampler = new StackSampler(folder.newFile("test.collapsed"), 1,
+                SamplingProfiler.DEFAULT_MAX_STACKS, SamplingProfiler.DEFAULT_MAX_DEPTH);
+        final Thread thread = new Thread(new ProfiledTest(sampler));
+        thread.start();
+        thread.join(TEST_TIMEOUT);
+        // when
+        sampler.sample();
+        // then
+        assertEquals("Registered threads", 0, sampler.getRegisteredThreads());
+    }
+
+    private static void awaitBlocked(final Thread thread) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TEST_TIMEOUT;
+        while (thread.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private final class ProfiledTest implements Runnable {
+        private final StackSampler sampler;
+
+        ProfiledTest(final StackSampler sampler) {
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final MultiTestsRule.ProfiledStatement statement =
+                        new MultiTestsRule.ProfiledStatement(new BlockingStatement(lock));
+                statement.sampledBy(sampler);
+                statement.evaluate();
+            } catch (final Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    private static final class BlockingStatement extends Statement {
+        private final Object lock;
+        private int executions;
+
+        BlockingStatement(final Object lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            synchronized (lock) {
+                executions++;
+            }
+        }
+    }
+}
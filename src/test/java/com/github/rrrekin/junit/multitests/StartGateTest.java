@@ -0,0 +1,76 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class StartGateTest {
+
+    private static final long JOIN_TIMEOUT = 10000;
+
+    @Test
+    public void shouldReleaseSpinningPartiesWhenAllArrived() throws Exception {
+        // given
+        final StartGate gate = new StartGate.Spin(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread waiting = arriveInThread(gate, failure);
+        // when
+        gate.arrive();
+        waiting.join(JOIN_TIMEOUT);
+        // then
+        assertFalse("Not released", waiting.isAlive());
+        assertNull("Failure", failure.get());
+    }
+
+    @Test
+    public void shouldReleaseSpinningPartiesOnAbort() throws Exception {
+        // given
+        final StartGate gate = new StartGate.Spin(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread waiting = arriveInThread(gate, failure);
+        // when
+        gate.abort();
+        waiting.join(JOIN_TIMEOUT);
+        // then
+        assertFalse("Not released", waiting.isAlive());
+        assertTrue("Failure: " + failure.get(), failure.get() instanceof BrokenBarrierException);
+    }
+
+    @Test
+    public void shouldStopSpinningWhenInterrupted() throws Exception {
+        // given
+        final StartGate gate = new StartGate.Spin(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread waiting = arriveInThread(gate, failure);
+        // when
+        waiting.interrupt();
+        waiting.join(JOIN_TIMEOUT);
+        // then
+        assertFalse("Not released", waiting.isAlive());
+        assertEquals("Failure", InterruptedException.class, failure.get().getClass());
+    }
+
+    private static Thread arriveInThread(final StartGate gate, final AtomicReference<Throwable> failure) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    gate.arrive();
+                } catch (final Exception ex) {
+                    failure.set(ex);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class SteadyStateTest {
+
+    private static final long MAX_MILLIS = 200;
+    private static final long LONG_MAX_MILLIS = 10000;
+    private static final long INVOCATION_NANOS = 100000;
+
+    @Test
+    public void shouldReachSteadyStateWhenLatencyIsStable() throws Exception {
+        // given
+        final SteadyState steadyState = new SteadyState(LONG_MAX_MILLIS, null);
+        final long start = System.nanoTime();
+        // when
+        do {
+            spin(INVOCATION_NANOS);
+        } while (!steadyState.invoked());
+        // then
+        assertTrue("Steady state not reached", steadyState.isReached());
+        assertTrue("Too short", System.nanoTime() - start
+                >= TimeUnit.MILLISECONDS.toNanos(SteadyState.WINDOWS * SteadyState.WINDOW_MILLIS));
+        assertTrue("Invocations not counted", steadyState.getInvocations() > SteadyState.WINDOWS);
+    }
+
+    @Test
+    public void shouldStopAtTimeCapWhenLatencyKeepsGrowing() throws Exception {
+        // given
+        final SteadyState steadyState = new SteadyState(MAX_MILLIS, null);
+        final long start = System.nanoTime();
+        long latency = INVOCATION_NANOS;
+        // when
+        do {
+            spin(latency);
+            latency += latency / 20;
+        } while (!steadyState.invoked());
+        // then
+        assertFalse("Steady state reached", steadyState.isReached());
+        assertTrue("Time cap not respected", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(MAX_MILLIS));
+    }
+
+    @Test
+    public void shouldUseJvmCompilerWhenAvailable() throws Exception {
+        // given
+        final SteadyState steadyState = new SteadyState(MAX_MILLIS);
+        final long start = System.nanoTime();
+        // when
+        do {
+            spin(INVOCATION_NANOS);
+        } while (!steadyState.invoked());
+        // then
+        assertTrue("Time cap exceeded",
+                System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2 * MAX_MILLIS));
+    }
+
+    private static void spin(final long nanos) {
+        final long start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+public class StressRunTest {
+
+    private static final long TEST_ROUNDS = 10000;
+    private static final long KEEP_ALIVE = 60000;
+
+    private WorkerPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new WorkerPool(0, 3, KEEP_ALIVE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldNotObserveForbiddenOutcomeOfVolatileStoreBuffering() throws Throwable {
+        // when
+        final StressOutcomes outcomes = storeBuffering()
+                .acceptable("actor 2 first", 0, 1)
+                .acceptable("actor 1 first", 1, 0)
+                .interesting("both stores before loads", 1, 1)
+                .forbidden("stores reordered with loads", 0, 0)
+                .run()
+                .verify();
+        // then
+        assertEquals("Rounds", TEST_ROUNDS, outcomes.getRounds());
+        assertEquals("Forbidden outcomes", 0, outcomes.getCount(0, 0));
+        assertEquals("Classified rounds", TEST_ROUNDS,
+                outcomes.getCount(Expect.ACCEPTABLE) + outcomes.getCount(Expect.INTERESTING));
+    }
+
+    @Test
+    public void shouldFailOnUndeclaredOutcome() throws Throwable {
+        // given
+        final StressOutcomes outcomes = storeBuffering().run();
+        // when
+        try {
+            outcomes.verify();
+            fail("Undeclared outcomes not reported");
+        } catch (final AssertionError ex) {
+            // then
+            assertTrue("Outcome table missing: " + ex.getMessage(), ex.getMessage().contains("FORBIDDEN"));
+        }
+        assertEquals("Forbidden outcomes", TEST_ROUNDS, outcomes.getCount(Expect.FORBIDDEN));
+    }
+
+    @Test
+    public void shouldRecordArbiterResultOfEveryRound() throws Throwable {
+        // given
+        final StressRun.Actor<AtomicInteger> increment = new StressRun.Actor<AtomicInteger>() {
+            @Override
+            public void act(final AtomicInteger state, final long[] result) {
+                state.incrementAndGet();
+            }
+        };
+        // when
+        final StressOutcomes outcomes = new StressRun<AtomicInteger>(new StressRun.State<AtomicInteger>() {
+            @Override
+            public AtomicInteger newState() {
+                return new AtomicInteger();
+            }
+        }, 1)
+                .actor(increment)
+                .actor(increment)
+                .arbiter(new StressRun.Arbiter<AtomicInteger>() {
+                    @Override
+                    public void arbitrate(final AtomicInteger state, final long[] result) {
+                        result[0] = state.get();
+                    }
+                })
+                .acceptable("both increments seen", 2)
+                .rounds(TEST_ROUNDS)
+                .withWorkerPool(pool)
+                .run()
+                .verify();
+        // then
+        assertEquals("Rounds with both increments", TEST_ROUNDS, outcomes.getCount(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateActorFailure() throws Throwable {
+        // when
+        storeBuffering()
+                .actor(new StressRun.Actor<Flags>() {
+                    @Override
+                    public void act(final Flags state, final long[] result) {
+                        throw new IllegalStateException("Test failure");
+                    }
+                })
+                .run();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOutcomeOfWrongSize() throws Throwable {
+        // when
+        storeBuffering().acceptable("too long", 0, 0, 0);
+    }
+
+    private StressRun<Flags> storeBuffering() {
+        return new StressRun<Flags>(new StressRun.State<Flags>() {
+            @Override
+            public Flags newState() {
+                return new Flags();
+            }
+        }, 2)
+                .actor(new StressRun.Actor<Flags>() {
+                    @Override
+                    public void act(final Flags state, final long[] result) {
+                        state.x = 1;
+                        result[0] = state.y;
+                    }
+                })
+                .actor(new StressRun.Actor<Flags>() {
+                    @Override
+                    public void act(final Flags state, final long[] result) {
+                        state.y = 1;
+                        result[1] = state.x;
+                    }
+                })
+                .rounds(TEST_ROUNDS)
+                .withWorkerPool(pool);
+    }
+
+    private static class Flags {
+        private volatile int x;
+        private volatile int y;
+    }
+}
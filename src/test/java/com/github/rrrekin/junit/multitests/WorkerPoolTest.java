@@ -0,0 +1,105 @@
+package com.github.rrrekin.junit.multitests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.Statement;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+/**
+ * @author Michal Rudewicz <michal.rudewicz@ericsson.com>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WorkerPoolTest {
+
+    private static final int TEST_COUNT = 42;
+    private static final long TEST_TIMEOUT = 1000;
+    private static final long KEEP_ALIVE = 60000;
+
+    private WorkerPool pool;
+
+    @Mock private Statement origStatement;
+    @Mock private Description description;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new WorkerPool(0, TEST_COUNT, KEEP_ALIVE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldReuseThreadsBetweenStatements() throws Throwable {
+        // when
+        parallelStatement(TEST_COUNT).evaluate();
+        parallelStatement(TEST_COUNT).evaluate();
+        // then
+        then(origStatement).should(times(2 * TEST_COUNT)).evaluate();
+        assertEquals("Executed tasks", 2 * TEST_COUNT, pool.getTasksExecuted());
+        assertTrue("Threads not reused", pool.getThreadsCreated() <= TEST_COUNT);
+        assertTrue("No saved setup time reported", pool.getSavedSetupNanos() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectStatementRequiringMoreThreadsThanAllowed() throws Throwable {
+        // when
+        parallelStatement(TEST_COUNT + 1).evaluate();
+    }
+
+    @Test
+    public void shouldShutDownAfterClassRule() throws Throwable {
+        // when
+        pool.apply(origStatement, description).evaluate();
+        // then
+        then(origStatement).should().evaluate();
+        assertTrue("Pool not shut down", pool.isShutdown());
+        try {
+            parallelStatement(TEST_COUNT).evaluate();
+            fail("Unexpected success");
+        } catch (final RejectedExecutionException ignored) {
+        }
+    }
+
+    @Test
+    public void shouldReportStatisticsOnShutdown() throws Throwable {
+        // given
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        pool.reportTo(new PrintStream(report, true));
+        parallelStatement(TEST_COUNT).evaluate();
+        // when
+        pool.shutdownAndReport("Shared worker pool");
+        // then
+        assertTrue("Pool not shut down", pool.isShutdown());
+        assertThat("Report", report.toString(), containsString("Shared worker pool: WorkerPool[threads created: "));
+    }
+
+    @Test
+    public void shouldReturnSameSharedPool() throws Exception {
+        // expect
+        assertSame("Shared pool", WorkerPool.shared(), WorkerPool.shared());
+    }
+
+    private MultiTestsRule.ParallelStatement parallelStatement(final int times) {
+        return new MultiTestsRule.ParallelStatement(times, times, TEST_TIMEOUT, origStatement, pool,
+                ExecutionMode.PLATFORM, null);
+    }
+}